@@ -0,0 +1,151 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import com.hfrobots.tnt.corelib.state.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recognizes long presses, double taps and chords (several buttons held together) on top of
+ * a NinjaGamePad's rise and fall edges, so that one button can do more than one thing.
+ * Call update() once per loop, after NinjaGamePad.snapshot(), it checks every button in a
+ * single pass. Events are bits in a mask (by NinjaGamePad button bit), so recognizing them
+ * does not allocate.
+ *
+ * A long press happens once, when the button has been held long enough. A double tap happens
+ * when a button is pressed again soon after a short press was released. A press still has
+ * its rise, regardless of whether it turns into a long press or double tap.
+ */
+public class ButtonGestures extends GamepadButtonEdges {
+    public static final long DEFAULT_LONG_PRESS_MILLIS = 600;
+
+    public static final long DEFAULT_DOUBLE_TAP_MILLIS = 300;
+
+    private static final int NUM_BUTTONS = 12;
+
+    private final Clock clock;
+
+    private final long longPressNanos;
+
+    private final long doubleTapNanos;
+
+    private final long[] pressedNanos = new long[NUM_BUTTONS];
+
+    private final long[] releasedNanos = new long[NUM_BUTTONS];
+
+    // Buttons whose current press has already been a long press
+    private int longPressed;
+
+    // Buttons whose current press is the second tap of a double tap
+    private int secondTaps;
+
+    // Buttons whose last press was short, so may be the first tap of a double tap
+    private int firstTaps;
+
+    private int longPresses;
+
+    private int doubleTaps;
+
+    public ButtonGestures(NinjaGamePad gamepad) {
+        this(Clock.SYSTEM, gamepad, DEFAULT_LONG_PRESS_MILLIS, DEFAULT_DOUBLE_TAP_MILLIS);
+    }
+
+    public ButtonGestures(Clock clock, NinjaGamePad gamepad, long longPressMillis, long doubleTapMillis) {
+        super(gamepad);
+        this.clock = clock;
+        this.longPressNanos = TimeUnit.MILLISECONDS.toNanos(longPressMillis);
+        this.doubleTapNanos = TimeUnit.MILLISECONDS.toNanos(doubleTapMillis);
+
+        // a button held down to begin with has no rise, so don't let that press become a
+        // long press (or the first tap of a double tap) either
+        long nowNanos = clock.nanoTime();
+        longPressed = getPressed();
+
+        for (int i = 0; i < NUM_BUTTONS; i++) {
+            pressedNanos[i] = nowNanos;
+        }
+    }
+
+    @Override
+    public void update() {
+        super.update();
+
+        long nowNanos = clock.nanoTime();
+        int pressed = getPressed();
+        int rises = getRises();
+        int falls = getFalls();
+
+        longPresses = 0;
+        doubleTaps = 0;
+
+        for (int i = 0; i < NUM_BUTTONS; i++) {
+            int button = 1 << i;
+
+            if ((rises & button) != 0) {
+                pressedNanos[i] = nowNanos;
+                longPressed &= ~button;
+
+                if ((firstTaps & button) != 0 && nowNanos - releasedNanos[i] <= doubleTapNanos) {
+                    doubleTaps |= button;
+                    secondTaps |= button;
+                }
+
+                firstTaps &= ~button;
+            }
+
+            if ((pressed & button) != 0) {
+                if ((longPressed & button) == 0 && nowNanos - pressedNanos[i] >= longPressNanos) {
+                    longPresses |= button;
+                    longPressed |= button;
+                }
+            } else if ((falls & button) != 0) {
+                if ((longPressed & button) == 0 && (secondTaps & button) == 0) {
+                    firstTaps |= button;
+                    releasedNanos[i] = nowNanos;
+                }
+
+                secondTaps &= ~button;
+            }
+        }
+    }
+
+    /**
+     * Returns true in the loop the given button has been held long enough to be a long press
+     */
+    public boolean getLongPress(int button) {
+        return (longPresses & button) != 0;
+    }
+
+    /**
+     * Returns true in the loop the given button is pressed for the second time of a double tap
+     */
+    public boolean getDoubleTap(int button) {
+        return (doubleTaps & button) != 0;
+    }
+
+    /**
+     * Returns true in the loop that the last of the given buttons (a mask of NinjaGamePad
+     * button bits) is pressed while all of the others are held
+     */
+    public boolean getChord(int buttons) {
+        return (getPressed() & buttons) == buttons && (getRises() & buttons) != 0;
+    }
+}
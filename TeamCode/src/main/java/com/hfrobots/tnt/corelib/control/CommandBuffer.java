@@ -0,0 +1,175 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Passes inputs from OpMode.loop() (the only writer) to a FixedRateControlThread (the only
+ * reader) without locking or allocating.
+ *
+ * Before starting, relay() each input the control thread needs, and give it the returned
+ * input instead. loop() then calls publish() to sample every relayed input at once, and the
+ * control thread calls receive() at the start of each run so that it sees one consistent set
+ * of inputs for the whole run.
+ */
+public class CommandBuffer {
+    private final List<RangeInput> rangeInputSources = new ArrayList<>();
+
+    private final List<OnOffButton> buttonSources = new ArrayList<>();
+
+    /** The value slot of each source, in the order they were relayed */
+    private final int[] rangeInputSlots;
+
+    private final int[] buttonSlots;
+
+    private int relayedCount = 0;
+
+    /** Odd while publish() is writing values */
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLongArray publishedValues;
+
+    /** Only used by the writer */
+    private final double[] sampledValues;
+
+    /** Only used by the reader */
+    private final double[] receivedValues;
+
+    private long receivedSequence = 0;
+
+    public CommandBuffer(int capacity) {
+        publishedValues = new AtomicLongArray(capacity);
+        sampledValues = new double[capacity];
+        receivedValues = new double[capacity];
+        rangeInputSlots = new int[capacity];
+        buttonSlots = new int[capacity];
+    }
+
+    /**
+     * Returns an input, for the control thread, with the position of the source as of the
+     * last publish() and receive()
+     */
+    public RangeInput relay(final RangeInput source) {
+        final int index = addValue();
+        rangeInputSlots[rangeInputSources.size()] = index;
+        rangeInputSources.add(source);
+
+        return new RangeInput() {
+            @Override
+            public float getPosition() {
+                return (float) receivedValues[index];
+            }
+
+            @Override
+            public float getMaxPosition() {
+                return source.getMaxPosition();
+            }
+
+            @Override
+            public float getMinPosition() {
+                return source.getMinPosition();
+            }
+        };
+    }
+
+    /**
+     * Returns a button, for the control thread, which is pressed if the source was as of
+     * the last publish() and receive()
+     */
+    public OnOffButton relay(OnOffButton source) {
+        final int index = addValue();
+        buttonSlots[buttonSources.size()] = index;
+        buttonSources.add(source);
+
+        return new OnOffButton() {
+            @Override
+            public boolean isPressed() {
+                return receivedValues[index] != 0;
+            }
+        };
+    }
+
+    private int addValue() {
+        if (relayedCount >= sampledValues.length) {
+            throw new IllegalStateException("Command buffer can only relay " + sampledValues.length + " inputs");
+        }
+
+        return relayedCount++;
+    }
+
+    /**
+     * Samples every relayed input, and makes the values available to the reader. Called
+     * by the writer (OpMode.loop()) only.
+     */
+    public void publish() {
+        for (int i = 0; i < rangeInputSources.size(); i++) {
+            sampledValues[rangeInputSlots[i]] = rangeInputSources.get(i).getPosition();
+        }
+
+        for (int i = 0; i < buttonSources.size(); i++) {
+            sampledValues[buttonSlots[i]] = buttonSources.get(i).isPressed() ? 1 : 0;
+        }
+
+        sequence.incrementAndGet(); // odd, readers will wait
+
+        for (int i = 0; i < relayedCount; i++) {
+            publishedValues.set(i, Double.doubleToRawLongBits(sampledValues[i]));
+        }
+
+        sequence.incrementAndGet(); // even, done
+    }
+
+    /**
+     * Takes the most recently published values, for the relayed inputs to return until
+     * the next call. Called by the reader (the control thread) only.
+     *
+     * @return true if anything was published since the last call
+     */
+    public boolean receive() {
+        while (true) {
+            long startSequence = sequence.get();
+
+            if ((startSequence & 1) != 0) {
+                Thread.yield(); // publish() is part way through
+                continue;
+            }
+
+            if (startSequence == receivedSequence) {
+                return false;
+            }
+
+            for (int i = 0; i < receivedValues.length; i++) {
+                receivedValues[i] = Double.longBitsToDouble(publishedValues.get(i));
+            }
+
+            if (sequence.get() == startSequence) {
+                receivedSequence = startSequence;
+
+                return true;
+            }
+
+            // publish() started again while we were copying, go again
+        }
+    }
+}
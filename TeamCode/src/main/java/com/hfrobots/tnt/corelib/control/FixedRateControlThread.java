@@ -0,0 +1,193 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Runs a task - state machines, drive control - on its own thread at a fixed period, rather
+ * than at whatever rate the SDK happens to call OpMode.loop(), so that control loops tuned
+ * for one period see that period from match to match.
+ *
+ * Each run is scheduled a whole number of periods after the first, so lateness does not
+ * add up over time. When a run takes longer than a period, the missed runs are skipped
+ * (and counted as overruns) rather than run back to back.
+ *
+ * Exchange inputs with OpMode.loop() through a CommandBuffer, and call checkNotFailed()
+ * from loop() so that an exception in the task stops the OpMode as it would have there.
+ */
+public class FixedRateControlThread {
+    private final String name;
+
+    private final long periodNanos;
+
+    private final Runnable task;
+
+    private Thread thread;
+
+    private volatile boolean running = false;
+
+    private volatile Throwable failure;
+
+    private volatile long runCount = 0;
+
+    private volatile long overrunCount = 0;
+
+    private volatile long maxLatenessNanos = 0;
+
+    public FixedRateControlThread(String name, long period, TimeUnit unit, Runnable task) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+
+        this.name = name;
+        this.periodNanos = unit.toNanos(period);
+        this.task = task;
+    }
+
+    public void start() {
+        if (thread != null) {
+            throw new IllegalStateException("Control thread " + name + " has already been started");
+        }
+
+        running = true;
+
+        thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                runAtFixedRate();
+            }
+        }, name);
+
+        thread.start();
+    }
+
+    /**
+     * Stops running the task, waiting for the current run (if any) to finish
+     */
+    public void stop() {
+        running = false;
+
+        if (thread == null) {
+            return;
+        }
+
+        thread.interrupt();
+
+        try {
+            thread.join(TimeUnit.NANOSECONDS.toMillis(periodNanos) + 1000);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        Log.d(LOG_TAG, String.format("Control thread %s stopped - %d runs, %d overruns, max lateness %.2f ms",
+                name, runCount, overrunCount, maxLatenessNanos / 1000000.0));
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Re-throws, on the calling thread, anything thrown by the task, which stops the task
+     */
+    public void checkNotFailed() {
+        Throwable t = failure;
+
+        if (t == null) {
+            return;
+        }
+
+        if (t instanceof RuntimeException) {
+            throw (RuntimeException) t;
+        }
+
+        RuntimeException rte = new RuntimeException("Control thread " + name + " failed");
+        rte.initCause(t);
+
+        throw rte;
+    }
+
+    public long getRunCount() {
+        return runCount;
+    }
+
+    /** The number of runs skipped because a run took longer than a period */
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /** The longest any run started after it was scheduled to */
+    public long getMaxLatenessNanos() {
+        return maxLatenessNanos;
+    }
+
+    private void runAtFixedRate() {
+        long scheduledNanos = System.nanoTime();
+
+        try {
+            while (running) {
+                long latenessNanos = System.nanoTime() - scheduledNanos;
+
+                if (latenessNanos > maxLatenessNanos) {
+                    maxLatenessNanos = latenessNanos;
+                }
+
+                task.run();
+                runCount++;
+
+                long nowNanos = System.nanoTime();
+                long nextScheduledNanos = nextScheduledNanos(scheduledNanos, nowNanos, periodNanos);
+                overrunCount += (nextScheduledNanos - scheduledNanos) / periodNanos - 1;
+                scheduledNanos = nextScheduledNanos;
+
+                long waitNanos;
+
+                while (running && (waitNanos = scheduledNanos - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(waitNanos);
+                }
+            }
+        } catch (Throwable t) {
+            Log.e(LOG_TAG, "Exception in control thread " + name, t);
+            failure = t;
+            running = false;
+        }
+    }
+
+    /**
+     * Returns when the run after the one scheduled at scheduledNanos should start - the next
+     * period boundary which has not passed yet
+     */
+    static long nextScheduledNanos(long scheduledNanos, long nowNanos, long periodNanos) {
+        long nextScheduledNanos = scheduledNanos + periodNanos;
+
+        if (nextScheduledNanos - nowNanos <= 0) {
+            long periodsPassed = (nowNanos - scheduledNanos) / periodNanos;
+            nextScheduledNanos = scheduledNanos + (periodsPassed + 1) * periodNanos;
+        }
+
+        return nextScheduledNanos;
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+/**
+ * Rise (pressed) and fall (released) edges for every button on a NinjaGamePad, found all at
+ * once from the gamepad's button mask rather than one DebouncedButton at a time. Call update()
+ * once per loop, after NinjaGamePad.snapshot(), then ask about any of the buttons (by their
+ * NinjaGamePad bit) as many times as needed during that loop - unlike DebouncedButton,
+ * asking does not use up the edge.
+ */
+public class GamepadButtonEdges {
+    private final NinjaGamePad gamepad;
+
+    private int previousButtons;
+
+    private int currentButtons;
+
+    private int rises;
+
+    private int falls;
+
+    public GamepadButtonEdges(NinjaGamePad gamepad) {
+        this.gamepad = gamepad;
+
+        // like DebouncedButton, a button held down to begin with is not a rise
+        previousButtons = gamepad.getButtons();
+        currentButtons = previousButtons;
+    }
+
+    /**
+     * Finds the edges since the last update()
+     */
+    public void update() {
+        previousButtons = currentButtons;
+        currentButtons = gamepad.getButtons();
+
+        int changed = previousButtons ^ currentButtons;
+        rises = changed & currentButtons;
+        falls = changed & previousButtons;
+    }
+
+    public boolean isPressed(int button) {
+        return (currentButtons & button) != 0;
+    }
+
+    /**
+     * Returns the mask of every button that is pressed
+     */
+    public int getPressed() {
+        return currentButtons;
+    }
+
+    public boolean getRise(int button) {
+        return (rises & button) != 0;
+    }
+
+    public boolean getFall(int button) {
+        return (falls & button) != 0;
+    }
+
+    /**
+     * Returns the mask of every button that was pressed since the last update()
+     */
+    public int getRises() {
+        return rises;
+    }
+
+    /**
+     * Returns the mask of every button that was released since the last update()
+     */
+    public int getFalls() {
+        return falls;
+    }
+}
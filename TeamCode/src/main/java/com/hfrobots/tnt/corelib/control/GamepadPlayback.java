@@ -0,0 +1,163 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Plays back a recording made by GamepadRecorder into NinjaGamePads, so that an OpMode -
+ * or a test against a simulated drive - sees exactly the inputs the driver gave. Playback
+ * is driven by elapsed time, so the same recording played against a ManualClock always
+ * gives the same inputs in the same loops.
+ */
+public class GamepadPlayback {
+    private final int numGamepads;
+
+    private final long[] timestamps;
+
+    private final int[] buttons;
+
+    private final float[] axes;
+
+    private final int numRecords;
+
+    private int currentRecord = 0;
+
+    // all buttons released, sticks centered - for once the recording has run out
+    private final float[] neutralAxes = new float[NinjaGamePad.NUM_AXES];
+
+    public GamepadPlayback(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+
+        if (dataIn.readInt() != GamepadRecorder.MAGIC) {
+            throw new IOException("Not a gamepad recording");
+        }
+
+        int version = dataIn.readInt();
+
+        if (version != GamepadRecorder.VERSION) {
+            throw new IOException("Unsupported gamepad recording version " + version);
+        }
+
+        numGamepads = dataIn.readInt();
+
+        long[] readTimestamps = new long[256];
+        int[] readButtons = new int[readTimestamps.length * numGamepads];
+        float[] readAxes = new float[readButtons.length * NinjaGamePad.NUM_AXES];
+        int count = 0;
+
+        while (true) {
+            if (count == readTimestamps.length) {
+                readTimestamps = Arrays.copyOf(readTimestamps, count * 2);
+                readButtons = Arrays.copyOf(readButtons, readTimestamps.length * numGamepads);
+                readAxes = Arrays.copyOf(readAxes, readButtons.length * NinjaGamePad.NUM_AXES);
+            }
+
+            try {
+                readTimestamps[count] = dataIn.readLong();
+
+                for (int i = 0; i < numGamepads; i++) {
+                    int gamepadSlot = count * numGamepads + i;
+                    readButtons[gamepadSlot] = dataIn.readInt();
+
+                    for (int axis = 0; axis < NinjaGamePad.NUM_AXES; axis++) {
+                        readAxes[gamepadSlot * NinjaGamePad.NUM_AXES + axis] = dataIn.readFloat();
+                    }
+                }
+            } catch (EOFException eof) {
+                // The end of the recording. If the robot lost power while recording, the last
+                // record may have been cut short, it is left out.
+                break;
+            }
+
+            count++;
+        }
+
+        timestamps = readTimestamps;
+        buttons = readButtons;
+        axes = readAxes;
+        numRecords = count;
+    }
+
+    public static GamepadPlayback load(File file) throws IOException {
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file))) {
+            return new GamepadPlayback(in);
+        }
+    }
+
+    public int getNumGamepads() {
+        return numGamepads;
+    }
+
+    public int size() {
+        return numRecords;
+    }
+
+    /**
+     * Returns how long the recording runs for
+     */
+    public long getDurationNanos() {
+        return numRecords == 0 ? 0 : timestamps[numRecords - 1];
+    }
+
+    /**
+     * Sets the snapshot of each of the given gamepads (in the order they were recorded) to
+     * what was recorded at the given time since the start of the recording. Returns false,
+     * and sets the gamepads to neutral, once the recording has run out.
+     */
+    public boolean playInto(long elapsedNanos, NinjaGamePad[] gamepads) {
+        if (gamepads.length != numGamepads) {
+            throw new IllegalArgumentException("Recording has " + numGamepads + " gamepads, not " + gamepads.length);
+        }
+
+        if (numRecords == 0 || elapsedNanos > timestamps[numRecords - 1]) {
+            for (NinjaGamePad gamepad : gamepads) {
+                gamepad.setSnapshot(0, neutralAxes, 0);
+            }
+
+            return false;
+        }
+
+        while (currentRecord + 1 < numRecords && timestamps[currentRecord + 1] <= elapsedNanos) {
+            currentRecord++;
+        }
+
+        for (int i = 0; i < numGamepads; i++) {
+            int gamepadSlot = currentRecord * numGamepads + i;
+            gamepads[i].setSnapshot(buttons[gamepadSlot], axes, gamepadSlot * NinjaGamePad.NUM_AXES);
+        }
+
+        return true;
+    }
+
+    /**
+     * Starts playing back from the beginning again
+     */
+    public void rewind() {
+        currentRecord = 0;
+    }
+}
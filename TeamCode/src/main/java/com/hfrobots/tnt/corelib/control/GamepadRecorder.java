@@ -0,0 +1,253 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import android.util.Log;
+
+import com.hfrobots.tnt.corelib.state.Clock;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Records the snapshot of one or more NinjaGamePads each loop - so that a driver's session
+ * can be played back with GamepadPlayback. record() only copies the snapshot into a buffer,
+ * a background thread writes the buffer out. If the writer falls so far behind that the
+ * buffer fills up, snapshots are dropped (and counted) rather than holding up the loop.
+ *
+ * The file is a header - MAGIC, VERSION, number of gamepads - then for each loop the time in
+ * nanoseconds since the first record, and for each gamepad its button mask and NUM_AXES axes.
+ */
+public class GamepadRecorder {
+    static final int MAGIC = 0x544e5447; // "TNTG"
+
+    static final int VERSION = 1;
+
+    public static final int DEFAULT_CAPACITY = 512;
+
+    private static final long WRITE_PERIOD_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final Clock clock;
+
+    private final NinjaGamePad[] gamepads;
+
+    private final int capacity;
+
+    private final long[] timestamps;
+
+    private final int[] buttons;
+
+    private final float[] axes;
+
+    // Records added by record(), and taken by the writer thread - one of each thread only
+    private final AtomicLong recordedCount = new AtomicLong();
+
+    private final AtomicLong writtenCount = new AtomicLong();
+
+    private long droppedCount = 0;
+
+    private long firstRecordNanos;
+
+    private DataOutputStream out;
+
+    private Thread writerThread;
+
+    private volatile boolean stopRequested = false;
+
+    public GamepadRecorder(NinjaGamePad... gamepads) {
+        this(Clock.SYSTEM, DEFAULT_CAPACITY, gamepads);
+    }
+
+    public GamepadRecorder(Clock clock, int capacity, NinjaGamePad... gamepads) {
+        if (gamepads.length == 0) {
+            throw new IllegalArgumentException("Nothing to record without a gamepad");
+        }
+
+        this.clock = clock;
+        this.gamepads = gamepads;
+        this.capacity = capacity;
+        timestamps = new long[capacity];
+        buttons = new int[capacity * gamepads.length];
+        axes = new float[capacity * gamepads.length * NinjaGamePad.NUM_AXES];
+    }
+
+    /**
+     * Starts recording to the given file, logs (rather than throws) any problem creating it
+     */
+    public void start(File file) {
+        File folder = file.getParentFile();
+
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            Log.e(LOG_TAG, "Could not create folder for gamepad recording " + file);
+
+            return;
+        }
+
+        try {
+            start(new BufferedOutputStream(new FileOutputStream(file)));
+            Log.i(LOG_TAG, "Recording gamepads to " + file);
+        } catch (IOException ioe) {
+            Log.e(LOG_TAG, "Could not record gamepads to " + file, ioe);
+        }
+    }
+
+    /**
+     * Starts recording to the given stream, which is closed by stop()
+     */
+    public void start(OutputStream outputStream) throws IOException {
+        if (writerThread != null) {
+            throw new IllegalStateException("Gamepad recorder already started");
+        }
+
+        out = new DataOutputStream(outputStream);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(gamepads.length);
+
+        writerThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeUntilStopped();
+            }
+        }, "gamepad recorder");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    public boolean isRecording() {
+        return writerThread != null && !stopRequested;
+    }
+
+    /**
+     * Records the gamepads' current snapshots, call once per loop after taking them
+     */
+    public void record() {
+        if (!isRecording()) {
+            return;
+        }
+
+        long count = recordedCount.get();
+
+        if (count - writtenCount.get() >= capacity) {
+            droppedCount++;
+
+            return;
+        }
+
+        long nowNanos = clock.nanoTime();
+
+        if (count == 0) {
+            firstRecordNanos = nowNanos;
+        }
+
+        int slot = (int) (count % capacity);
+        timestamps[slot] = nowNanos - firstRecordNanos;
+
+        for (int i = 0; i < gamepads.length; i++) {
+            int gamepadSlot = slot * gamepads.length + i;
+            NinjaGamePad gamepad = gamepads[i];
+
+            buttons[gamepadSlot] = gamepad.getButtons();
+
+            for (int axis = 0; axis < NinjaGamePad.NUM_AXES; axis++) {
+                axes[gamepadSlot * NinjaGamePad.NUM_AXES + axis] = gamepad.getAxis(axis);
+            }
+        }
+
+        // publishes the record to the writer thread
+        recordedCount.set(count + 1);
+    }
+
+    /**
+     * Writes out everything recorded so far, and stops recording
+     */
+    public void stop() {
+        if (writerThread == null || stopRequested) {
+            return;
+        }
+
+        stopRequested = true;
+        LockSupport.unpark(writerThread);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+        }
+
+        Log.i(LOG_TAG, "Recorded " + writtenCount.get() + " gamepad snapshots, dropped " + droppedCount);
+    }
+
+    public long getDroppedCount() {
+        return droppedCount;
+    }
+
+    private void writeUntilStopped() {
+        try {
+            while (!stopRequested) {
+                writeRecorded();
+                LockSupport.parkNanos(WRITE_PERIOD_NANOS);
+            }
+
+            writeRecorded();
+        } catch (IOException ioe) {
+            Log.e(LOG_TAG, "Could not write gamepad recording", ioe);
+        } finally {
+            try {
+                out.close();
+            } catch (IOException ioe) {
+                Log.e(LOG_TAG, "Could not close gamepad recording", ioe);
+            }
+        }
+    }
+
+    private void writeRecorded() throws IOException {
+        long written = writtenCount.get();
+        long recorded = recordedCount.get();
+
+        while (written < recorded) {
+            int slot = (int) (written % capacity);
+            out.writeLong(timestamps[slot]);
+
+            for (int i = 0; i < gamepads.length; i++) {
+                int gamepadSlot = slot * gamepads.length + i;
+                out.writeInt(buttons[gamepadSlot]);
+
+                for (int axis = 0; axis < NinjaGamePad.NUM_AXES; axis++) {
+                    out.writeFloat(axes[gamepadSlot * NinjaGamePad.NUM_AXES + axis]);
+                }
+            }
+
+            written++;
+            writtenCount.set(written); // frees the slot for record()
+        }
+
+        out.flush();
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+/**
+ * Keeps a robot's heading where the driver left it. While the driver is turning, their
+ * rotation input is used as-is. When the rotation input is released, the heading at that
+ * point becomes the target, and the rotation returned steers back to it (proportionally,
+ * up to a maximum) so the robot doesn't drift in heading while strafing.
+ *
+ * Headings are in degrees, counter-clockwise positive, and like MecanumGyroTurnState the
+ * rotation returned is the opposite sign of the heading error, to match
+ * MecanumDrive.driveCartesian().
+ */
+public class HeadingHold {
+    private final double gainPerDegree;
+
+    private final double maxCorrection;
+
+    private final double rotationDeadband;
+
+    private boolean holding = false;
+
+    private double targetHeadingDegrees;
+
+    public HeadingHold(double gainPerDegree, double maxCorrection, double rotationDeadband) {
+        if (gainPerDegree <= 0 || maxCorrection <= 0) {
+            throw new IllegalArgumentException("Heading hold gain and maximum correction must be positive");
+        }
+
+        this.gainPerDegree = gainPerDegree;
+        this.maxCorrection = maxCorrection;
+        this.rotationDeadband = rotationDeadband;
+    }
+
+    /**
+     * Returns the rotation to drive with, given the driver's rotation input and the
+     * current heading
+     */
+    public double getRotation(double rotationInput, double headingDegrees) {
+        if (Math.abs(rotationInput) > rotationDeadband) {
+            holding = false;
+
+            return rotationInput;
+        }
+
+        if (!holding) {
+            holding = true;
+            targetHeadingDegrees = headingDegrees;
+        }
+
+        double errorDegrees = wrapDegrees(targetHeadingDegrees - headingDegrees);
+
+        double correction = Math.max(-maxCorrection, Math.min(errorDegrees * gainPerDegree, maxCorrection));
+
+        return -correction;
+    }
+
+    /**
+     * Stops holding, the next time the rotation input is released becomes the new target
+     */
+    public void reset() {
+        holding = false;
+    }
+
+    public boolean isHolding() {
+        return holding;
+    }
+
+    public double getTargetHeadingDegrees() {
+        return targetHeadingDegrees;
+    }
+
+    /**
+     * Returns the given angle in the range (-180, 180]
+     */
+    static double wrapDegrees(double degrees) {
+        degrees %= 360;
+
+        if (degrees > 180) {
+            degrees -= 360;
+        } else if (degrees <= -180) {
+            degrees += 360;
+        }
+
+        return degrees;
+    }
+}
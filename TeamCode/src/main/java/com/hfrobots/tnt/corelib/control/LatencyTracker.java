@@ -0,0 +1,197 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Measures, for one control path (for example the drive), how long it takes from a driver's
+ * input first being seen (NinjaGamePad.getLastChangeNanos()) until the motor powers that
+ * result from it have been set. Call markInput() where the path reads its inputs, and
+ * markOutput() once it has set its motors - which may be on another thread, such as a
+ * FixedRateControlThread. Keeps a histogram of the latencies, see logSummary().
+ *
+ * An input is only seen by the next snapshot, and the time it was actually made can't be
+ * known. When the snapshot is taken in the same loop that sets the motors, the measured
+ * latency leaves out that wait, which is where slow loops (for example from heavy
+ * telemetry) show up. So a second, worst case, histogram adds the time since the previous
+ * snapshot (NinjaGamePad.getLastChangeUnseenNanos()) - the input may have been made at
+ * any point in it.
+ */
+public class LatencyTracker {
+    static final long BUCKET_WIDTH_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    // 0 - 100 ms, anything slower is counted in the last bucket
+    static final int NUM_BUCKETS = 200;
+
+    private static final long NO_INPUT = Long.MIN_VALUE;
+
+    private final String name;
+
+    private final int[] histogram = new int[NUM_BUCKETS];
+
+    private final int[] worstCaseHistogram = new int[NUM_BUCKETS];
+
+    private long count = 0;
+
+    private long maxNanos = 0;
+
+    private long worstCaseMaxNanos = 0;
+
+    private long lastInputNanos = NO_INPUT;
+
+    // the input not yet followed by an output, handed from markInput() to markOutput()
+    private final AtomicLong pendingInputNanos = new AtomicLong(NO_INPUT);
+
+    // how long the pending input may have gone unseen, written before pendingInputNanos
+    private volatile long pendingUnseenNanos = 0;
+
+    public LatencyTracker(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Call with the gamepad this path reads its inputs from, after it has been snapshot
+     */
+    public void markInput(NinjaGamePad gamepad) {
+        markInput(gamepad.getLastChangeNanos(), gamepad.getLastChangeUnseenNanos());
+    }
+
+    /**
+     * Call with the time the inputs for this path were last seen to change, and how long
+     * before that they may have changed, only new changes start a measurement
+     */
+    public void markInput(long inputChangeNanos, long unseenNanos) {
+        if (inputChangeNanos == lastInputNanos) {
+            return;
+        }
+
+        lastInputNanos = inputChangeNanos;
+
+        // if the last change has not reached the motors yet, keep measuring from that one.
+        // Only markOutput() clears the pending input, so it stays clear until set here.
+        if (pendingInputNanos.get() == NO_INPUT) {
+            pendingUnseenNanos = unseenNanos;
+            pendingInputNanos.set(inputChangeNanos);
+        }
+    }
+
+    /**
+     * Call when the motor powers for this path have been set
+     */
+    public void markOutput() {
+        long inputNanos = pendingInputNanos.getAndSet(NO_INPUT);
+
+        if (inputNanos == NO_INPUT) {
+            return;
+        }
+
+        long latencyNanos = System.nanoTime() - inputNanos;
+        long worstCaseNanos = latencyNanos + pendingUnseenNanos;
+        histogram[bucketFor(latencyNanos)]++;
+        worstCaseHistogram[bucketFor(worstCaseNanos)]++;
+        count++;
+
+        if (latencyNanos > maxNanos) {
+            maxNanos = latencyNanos;
+        }
+
+        if (worstCaseNanos > worstCaseMaxNanos) {
+            worstCaseMaxNanos = worstCaseNanos;
+        }
+    }
+
+    private static int bucketFor(long nanos) {
+        return (int) Math.min(nanos / BUCKET_WIDTH_NANOS, NUM_BUCKETS - 1);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    public long getWorstCaseMaxNanos() {
+        return worstCaseMaxNanos;
+    }
+
+    /**
+     * Returns the latency (to the resolution of a bucket) which the given percentage (0-100)
+     * of inputs reached the motors within, or 0 if nothing has been measured
+     */
+    public long getPercentileNanos(double percentile) {
+        return percentileNanos(histogram, maxNanos, percentile);
+    }
+
+    /**
+     * Like getPercentileNanos(), but including the time each input may have gone unseen
+     * before its snapshot
+     */
+    public long getWorstCasePercentileNanos(double percentile) {
+        return percentileNanos(worstCaseHistogram, worstCaseMaxNanos, percentile);
+    }
+
+    private long percentileNanos(int[] histogram, long maxNanos, double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        int bucket;
+
+        for (bucket = 0; bucket < NUM_BUCKETS - 1; bucket++) {
+            seen += histogram[bucket];
+
+            if (seen >= rank) {
+                break;
+            }
+        }
+
+        if (bucket == NUM_BUCKETS - 1) {
+            return maxNanos;
+        }
+
+        return Math.min((bucket + 1) * BUCKET_WIDTH_NANOS, maxNanos);
+    }
+
+    /**
+     * Logs the count, 50th and 99th percentile and maximum latency, call from OpMode.stop()
+     * once the path is no longer running
+     */
+    public void logSummary() {
+        Log.d(LOG_TAG, String.format("latency %s: inputs %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms"
+                        + " (worst case with loop period p50 %.2f ms, p99 %.2f ms, max %.2f ms)",
+                name, count,
+                getPercentileNanos(50) / 1000000.0,
+                getPercentileNanos(99) / 1000000.0,
+                maxNanos / 1000000.0,
+                getWorstCasePercentileNanos(50) / 1000000.0,
+                getWorstCasePercentileNanos(99) / 1000000.0,
+                worstCaseMaxNanos / 1000000.0));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import android.util.Log;
+
+import com.hfrobots.tnt.corelib.state.Clock;
+import com.hfrobots.tnt.corelib.state.CycleBudget;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Runs each registered task at its own rate - for example driving every 10 ms, but telemetry
+ * only every 250 ms - so that things which change slowly don't cost bus and CPU time every
+ * loop. Call runDueTasks() from OpMode.loop() (or from a FixedRateControlThread), it runs only
+ * the tasks whose time has come, in the order they were added.
+ *
+ * A task can not run more often than runDueTasks() is called. When a task falls behind, missed
+ * runs are skipped rather than run back to back, as in FixedRateControlThread.
+ *
+ * Tasks added with scheduleDiagnostics() are put off, while they are due, until a loop
+ * which has time left in its CycleBudget.
+ */
+public class MultiRateScheduler {
+    private final Clock clock;
+
+    private final List<String> names = new ArrayList<>();
+
+    private final List<Runnable> tasks = new ArrayList<>();
+
+    private long[] periodNanos = new long[0];
+
+    private long[] nextRunNanos = new long[0];
+
+    private long[] runCounts = new long[0];
+
+    private boolean[] diagnostics = new boolean[0];
+
+    private long[] deferCounts = new long[0];
+
+    private CycleBudget cycleBudget;
+
+    private boolean started = false;
+
+    public MultiRateScheduler() {
+        this(Clock.SYSTEM);
+    }
+
+    public MultiRateScheduler(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * Adds a task to run every period, starting with the first call to runDueTasks()
+     */
+    public void schedule(String name, long period, TimeUnit unit, Runnable task) {
+        addTask(name, period, unit, task, false);
+    }
+
+    /**
+     * Adds a non-critical task (telemetry, logging) to run every period, but only in loops
+     * which have time left for it once the control tasks have run
+     */
+    public void scheduleDiagnostics(String name, long period, TimeUnit unit, Runnable task) {
+        addTask(name, period, unit, task, true);
+    }
+
+    /**
+     * Sets the budget checked before running diagnostic tasks, the caller starts each cycle
+     */
+    public void setCycleBudget(CycleBudget cycleBudget) {
+        this.cycleBudget = cycleBudget;
+    }
+
+    private void addTask(String name, long period, TimeUnit unit, Runnable task, boolean isDiagnostic) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period for " + name + " must be positive");
+        }
+
+        if (started) {
+            throw new IllegalStateException("Tasks can not be added once the scheduler has started");
+        }
+
+        int index = tasks.size();
+        names.add(name);
+        tasks.add(task);
+
+        periodNanos = Arrays.copyOf(periodNanos, index + 1);
+        nextRunNanos = Arrays.copyOf(nextRunNanos, index + 1);
+        runCounts = Arrays.copyOf(runCounts, index + 1);
+        diagnostics = Arrays.copyOf(diagnostics, index + 1);
+        deferCounts = Arrays.copyOf(deferCounts, index + 1);
+        periodNanos[index] = unit.toNanos(period);
+        diagnostics[index] = isDiagnostic;
+    }
+
+    public void runDueTasks() {
+        long nowNanos = clock.nanoTime();
+
+        if (!started) {
+            Arrays.fill(nextRunNanos, nowNanos);
+            started = true;
+        }
+
+        for (int i = 0; i < periodNanos.length; i++) {
+            if (nowNanos - nextRunNanos[i] >= 0) {
+                if (diagnostics[i] && cycleBudget != null && !cycleBudget.hasTimeForDiagnostics()) {
+                    // still due, so it runs in the next loop with time to spare
+                    deferCounts[i]++;
+
+                    continue;
+                }
+
+                tasks.get(i).run();
+                runCounts[i]++;
+                nextRunNanos[i] = FixedRateControlThread.nextScheduledNanos(nextRunNanos[i], nowNanos, periodNanos[i]);
+            }
+        }
+    }
+
+    /**
+     * Returns how many times the named task has run
+     */
+    public long getRunCount(String name) {
+        int index = names.indexOf(name);
+
+        if (index == -1) {
+            throw new IllegalArgumentException("No task named " + name);
+        }
+
+        return runCounts[index];
+    }
+
+    /**
+     * Logs how many times each task ran, call from OpMode.stop()
+     */
+    public void logRunCounts() {
+        for (int i = 0; i < names.size(); i++) {
+            Log.d(LOG_TAG, "scheduled task " + names.get(i) + " ran " + runCounts[i] + " times, deferred "
+                    + deferCounts[i] + " times");
+        }
+    }
+}
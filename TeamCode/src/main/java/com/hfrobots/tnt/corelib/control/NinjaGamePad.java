@@ -23,139 +23,197 @@ import com.qualcomm.robotcore.hardware.Gamepad;
 
 /**
  * A more usable/adaptable game pad class
+ *
+ * Each control has a single OnOffButton/RangeInput, created once, so getters always return
+ * the same object. Once snapshot() has been called, those read from the snapshot rather
+ * than the live Gamepad, so call snapshot() at the top of every loop to see all of the
+ * controls as they were at one moment (the live Gamepad is updated from another thread).
  */
 public class NinjaGamePad {
+    // Bits in the mask returned by getButtons()
+    public static final int A_BUTTON = 1;
+    public static final int B_BUTTON = 1 << 1;
+    public static final int X_BUTTON = 1 << 2;
+    public static final int Y_BUTTON = 1 << 3;
+    public static final int LEFT_BUMPER = 1 << 4;
+    public static final int RIGHT_BUMPER = 1 << 5;
+    public static final int DPAD_UP = 1 << 6;
+    public static final int DPAD_DOWN = 1 << 7;
+    public static final int DPAD_LEFT = 1 << 8;
+    public static final int DPAD_RIGHT = 1 << 9;
+    public static final int LEFT_STICK_BUTTON = 1 << 10;
+    public static final int RIGHT_STICK_BUTTON = 1 << 11;
+
+    // Indices of the axes for getAxis()
+    public static final int LEFT_STICK_X = 0;
+    public static final int LEFT_STICK_Y = 1;
+    public static final int RIGHT_STICK_X = 2;
+    public static final int RIGHT_STICK_Y = 3;
+    public static final int LEFT_TRIGGER = 4;
+    public static final int RIGHT_TRIGGER = 5;
+
+    public static final int NUM_AXES = 6;
+
     private final Gamepad gamepad;
 
-    public NinjaGamePad(final Gamepad originalGamepad) {
-        gamepad = originalGamepad;
-    }
+    private boolean snapshotTaken = false;
 
-    public OnOffButton getAButton(){
-        return new OnOffButton() {
+    private int snapshotButtons;
 
-            @Override
-            public boolean isPressed() {
-                return gamepad.a;
-            }
-        };
-    }
+    private final float[] snapshotAxes = new float[NUM_AXES];
 
-    public OnOffButton getBButton(){
-        return new OnOffButton() {
+    private long lastChangeNanos = 0;
 
-            @Override
-            public boolean isPressed() {
-                return gamepad.b;
-            }
-        };
-    }
+    private long lastChangeUnseenNanos = 0;
 
-    public OnOffButton getXButton() {
-        return new OnOffButton() {
+    private long lastSnapshotNanos = 0;
 
-            @Override
-            public boolean isPressed() {
-                return gamepad.x;
-            }
-        };
-    }
+    private final OnOffButton aButton = newButton(A_BUTTON);
+    private final OnOffButton bButton = newButton(B_BUTTON);
+    private final OnOffButton xButton = newButton(X_BUTTON);
+    private final OnOffButton yButton = newButton(Y_BUTTON);
+    private final OnOffButton leftBumper = newButton(LEFT_BUMPER);
+    private final OnOffButton rightBumper = newButton(RIGHT_BUMPER);
+    private final OnOffButton dpadUp = newButton(DPAD_UP);
+    private final OnOffButton dpadDown = newButton(DPAD_DOWN);
+    private final OnOffButton dpadLeft = newButton(DPAD_LEFT);
+    private final OnOffButton dpadRight = newButton(DPAD_RIGHT);
+    private final OnOffButton leftStickButton = newButton(LEFT_STICK_BUTTON);
+    private final OnOffButton rightStickButton = newButton(RIGHT_STICK_BUTTON);
 
-    public OnOffButton getYButton(){
-        return new OnOffButton() {
+    private final RangeInput leftStickX = newRangeInput(LEFT_STICK_X, -1.0f);
+    private final RangeInput leftStickY = newRangeInput(LEFT_STICK_Y, -1.0f);
+    private final RangeInput rightStickX = newRangeInput(RIGHT_STICK_X, -1.0f);
+    private final RangeInput rightStickY = newRangeInput(RIGHT_STICK_Y, -1.0f);
+    private final RangeInput leftTrigger = newRangeInput(LEFT_TRIGGER, 0.0f);
+    private final RangeInput rightTrigger = newRangeInput(RIGHT_TRIGGER, 0.0f);
 
-            @Override
-            public boolean isPressed() {
-                return gamepad.y;
-            }
-        };
+    public NinjaGamePad(final Gamepad originalGamepad) {
+        gamepad = originalGamepad;
     }
 
-    public OnOffButton getLeftBumper(){
-        return new OnOffButton() {
-
-            @Override
-            public boolean isPressed() {
-                return gamepad.left_bumper;
-            }
-        };
+    /**
+     * Copies all of the buttons and axes from the live Gamepad, which is what the getters'
+     * inputs, getButtons() and getAxis() return until the next snapshot
+     */
+    public void snapshot() {
+        int buttons = readButtons();
+        boolean changed = !snapshotTaken || buttons != snapshotButtons;
+        snapshotButtons = buttons;
+
+        for (int i = 0; i < NUM_AXES; i++) {
+            float axis = readAxis(i);
+            changed |= axis != snapshotAxes[i];
+            snapshotAxes[i] = axis;
+        }
+
+        long nowNanos = System.nanoTime();
+
+        if (changed) {
+            // the change was made at some point since the last snapshot
+            lastChangeUnseenNanos = snapshotTaken ? nowNanos - lastSnapshotNanos : 0;
+            lastChangeNanos = nowNanos;
+        }
+
+        lastSnapshotNanos = nowNanos;
+        snapshotTaken = true;
     }
 
-    public OnOffButton getRightBumper(){
-        return new OnOffButton() {
-
-            @Override
-            public boolean isPressed() {
-                return gamepad.right_bumper;
-            }
-        };
+    /**
+     * Returns the System.nanoTime() of the first snapshot() that saw the current values
+     * of the buttons and axes - when the driver's latest input was first seen - for
+     * measuring how long it takes to reach the motors (see LatencyTracker)
+     */
+    public long getLastChangeNanos() {
+        return lastChangeNanos;
     }
 
-    public OnOffButton getDpadUp(){
-        return new OnOffButton() {
-
-            @Override
-            public boolean isPressed() {
-                return gamepad.dpad_up;
-            }
-        };
+    /**
+     * Returns the time between the snapshot that first saw the latest input and the
+     * snapshot before it (the loop period, when snapshots are taken every loop), which
+     * is the longest the input may have gone unseen
+     */
+    public long getLastChangeUnseenNanos() {
+        return lastChangeUnseenNanos;
     }
 
-    public OnOffButton getDpadDown(){
-        return new OnOffButton() {
-
-            @Override
-            public boolean isPressed() {
-                return gamepad.dpad_down;
-            }
-        };
+    /**
+     * Takes the snapshot from the given buttons and axes (NUM_AXES of them, starting at
+     * axesOffset) rather than the live Gamepad, for example to play back a recording
+     */
+    public void setSnapshot(int buttons, float[] axes, int axesOffset) {
+        snapshotButtons = buttons;
+        System.arraycopy(axes, axesOffset, snapshotAxes, 0, NUM_AXES);
+        snapshotTaken = true;
     }
 
-    public OnOffButton getDpadLeft(){
-        return new OnOffButton() {
-
-            @Override
-            public boolean isPressed() {
-                return gamepad.dpad_left;
-            }
-        };
+    /**
+     * Returns all of the buttons as a mask of the _BUTTON, _BUMPER and DPAD_ bits
+     */
+    public int getButtons() {
+        return snapshotTaken ? snapshotButtons : readButtons();
     }
 
-    public OnOffButton getDpadRight(){
-        return new OnOffButton() {
-
-            @Override
-            public boolean isPressed() {
-                return gamepad.dpad_right;
-            }
-        };
+    /**
+     * Returns the position of the given axis (LEFT_STICK_X ... RIGHT_TRIGGER)
+     */
+    public float getAxis(int axis) {
+        return snapshotTaken ? snapshotAxes[axis] : readAxis(axis);
     }
 
-    public OnOffButton getLeftStickButton(){
-        return new OnOffButton() {
+    private int readButtons() {
+        int buttons = 0;
+
+        if (gamepad.a) buttons |= A_BUTTON;
+        if (gamepad.b) buttons |= B_BUTTON;
+        if (gamepad.x) buttons |= X_BUTTON;
+        if (gamepad.y) buttons |= Y_BUTTON;
+        if (gamepad.left_bumper) buttons |= LEFT_BUMPER;
+        if (gamepad.right_bumper) buttons |= RIGHT_BUMPER;
+        if (gamepad.dpad_up) buttons |= DPAD_UP;
+        if (gamepad.dpad_down) buttons |= DPAD_DOWN;
+        if (gamepad.dpad_left) buttons |= DPAD_LEFT;
+        if (gamepad.dpad_right) buttons |= DPAD_RIGHT;
+        if (gamepad.left_stick_button) buttons |= LEFT_STICK_BUTTON;
+        if (gamepad.right_stick_button) buttons |= RIGHT_STICK_BUTTON;
+
+        return buttons;
+    }
 
-            @Override
-            public boolean isPressed() {
-                return gamepad.left_stick_button;
-            }
-        };
+    private float readAxis(int axis) {
+        switch (axis) {
+            case LEFT_STICK_X:
+                return gamepad.left_stick_x;
+            case LEFT_STICK_Y:
+                return gamepad.left_stick_y;
+            case RIGHT_STICK_X:
+                return gamepad.right_stick_x;
+            case RIGHT_STICK_Y:
+                return gamepad.right_stick_y;
+            case LEFT_TRIGGER:
+                return gamepad.left_trigger;
+            case RIGHT_TRIGGER:
+                return gamepad.right_trigger;
+            default:
+                throw new IllegalArgumentException("Unknown axis " + axis);
+        }
     }
 
-    public OnOffButton getRightStickButton(){
+    private OnOffButton newButton(final int button) {
         return new OnOffButton() {
 
             @Override
             public boolean isPressed() {
-                return gamepad.right_stick_button;
+                return (getButtons() & button) != 0;
             }
         };
     }
 
-    public RangeInput getLeftStickY(){
+    private RangeInput newRangeInput(final int axis, final float minPosition) {
         return new RangeInput() {
             @Override
             public float getPosition() {
-                return gamepad.left_stick_y;
+                return getAxis(axis);
             }
 
             @Override
@@ -165,103 +223,80 @@ public class NinjaGamePad {
 
             @Override
             public float getMinPosition() {
-                return -1.0f;
+                return minPosition;
             }
         };
     }
 
-    public RangeInput getLeftStickX(){
-        return new RangeInput() {
-            @Override
-            public float getPosition() {
-                return gamepad.left_stick_x;
-            }
+    public OnOffButton getAButton(){
+        return aButton;
+    }
 
-            @Override
-            public float getMaxPosition() {
-                return 1.0f;
-            }
+    public OnOffButton getBButton(){
+        return bButton;
+    }
 
-            @Override
-            public float getMinPosition() {
-                return -1.0f;
-            }
-        };
+    public OnOffButton getXButton() {
+        return xButton;
     }
 
-    public RangeInput getRightStickY(){
-        return new RangeInput() {
-            @Override
-            public float getPosition() {
-                return gamepad.right_stick_y;
-            }
+    public OnOffButton getYButton(){
+        return yButton;
+    }
 
-            @Override
-            public float getMaxPosition() {
-                return 1.0f;
-            }
+    public OnOffButton getLeftBumper(){
+        return leftBumper;
+    }
 
-            @Override
-            public float getMinPosition() {
-                return -1.0f;
-            }
-        };
+    public OnOffButton getRightBumper(){
+        return rightBumper;
     }
 
-    public RangeInput getRightStickX(){
-        return new RangeInput() {
-            @Override
-            public float getPosition() {
-                return gamepad.right_stick_x;
-            }
+    public OnOffButton getDpadUp(){
+        return dpadUp;
+    }
 
-            @Override
-            public float getMaxPosition() {
-                return 1.0f;
-            }
+    public OnOffButton getDpadDown(){
+        return dpadDown;
+    }
 
-            @Override
-            public float getMinPosition() {
-                return -1.0f;
-            }
-        };
+    public OnOffButton getDpadLeft(){
+        return dpadLeft;
     }
 
-    public RangeInput getLeftTrigger(){
-        return new RangeInput() {
-            @Override
-            public float getPosition() {
-                return gamepad.left_trigger;
-            }
+    public OnOffButton getDpadRight(){
+        return dpadRight;
+    }
 
-            @Override
-            public float getMaxPosition() {
-                return 1.0f;
-            }
+    public OnOffButton getLeftStickButton(){
+        return leftStickButton;
+    }
 
-            @Override
-            public float getMinPosition() {
-                return 0.0f;
-            }
-        };
+    public OnOffButton getRightStickButton(){
+        return rightStickButton;
     }
 
-    public RangeInput getRightTrigger(){
-        return new RangeInput() {
-            @Override
-            public float getPosition() {
-                return gamepad.right_trigger;
-            }
+    public RangeInput getLeftStickY(){
+        return leftStickY;
+    }
 
-            @Override
-            public float getMaxPosition() {
-                return 1.0f;
-            }
+    public RangeInput getLeftStickX(){
+        return leftStickX;
+    }
 
-            @Override
-            public float getMinPosition() {
-                return 0.0f;
-            }
-        };
+    public RangeInput getRightStickY(){
+        return rightStickY;
+    }
+
+    public RangeInput getRightStickX(){
+        return rightStickX;
+    }
+
+    public RangeInput getLeftTrigger(){
+        return leftTrigger;
+    }
+
+    public RangeInput getRightTrigger(){
+        return rightTrigger;
     }
 }
@@ -0,0 +1,100 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+/**
+ * Shapes a gamepad input (-1 to 1) into a motor power, for finer control near the middle
+ * of the stick's travel. The curve is worked out once, into a lookup table, and shape()
+ * interpolates between its points, so is cheap enough to call for every axis every loop.
+ * Curves are symmetric: shape(-x) == -shape(x).
+ *
+ * Curves are immutable, swap one for another to change how the robot drives.
+ */
+public class ResponseCurve {
+    // Number of segments the table splits 0..1 into, for curves that are worked out
+    private static final int NUM_SEGMENTS = 256;
+
+    /** Power is the same as the input */
+    public static final ResponseCurve LINEAR = new ResponseCurve(new float[] {0, 1});
+
+    /** 30% cubic, what our teleops have driven with since Velocity Vortex */
+    public static final ResponseCurve DRIVE = new ResponseCurve(0.3f, 3, 0);
+
+    private final float[] table;
+
+    private final int numSegments;
+
+    /**
+     * Creates a curve from outputs for evenly spaced inputs from 0 to 1 (inclusive), for
+     * example {0, .1, .3, 1} for inputs 0, 1/3, 2/3 and 1
+     */
+    public ResponseCurve(float[] points) {
+        if (points.length < 2) {
+            throw new IllegalArgumentException("A response curve needs at least 2 points");
+        }
+
+        table = points.clone();
+        numSegments = table.length - 1;
+    }
+
+    /**
+     * Creates a curve that blends x^exponent (gain of it) with x (the rest), with non-zero
+     * inputs given at least deadband of power, to overcome the drive train's friction
+     */
+    public ResponseCurve(float gain, float exponent, float deadband) {
+        if (gain < 0 || gain > 1) {
+            throw new IllegalArgumentException("Gain must be between 0 and 1, not " + gain);
+        }
+
+        table = new float[NUM_SEGMENTS + 1];
+        numSegments = NUM_SEGMENTS;
+
+        for (int i = 1; i <= NUM_SEGMENTS; i++) {
+            double x = (double) i / NUM_SEGMENTS;
+
+            table[i] = (float) (deadband + (1 - deadband) * (gain * Math.pow(x, exponent) + (1 - gain) * x));
+        }
+    }
+
+    /**
+     * Returns the shaped value for the given input, which is clipped to -1..1
+     */
+    public float shape(float input) {
+        float magnitude = Math.min(Math.abs(input), 1.0f) * numSegments;
+        int segment = (int) magnitude;
+
+        float output;
+
+        if (segment >= numSegments) {
+            output = table[numSegments];
+        } else if (segment == 0 && magnitude == 0) {
+            output = 0; // no power without input, regardless of the deadband
+        } else {
+            float fraction = magnitude - segment;
+            output = table[segment] + (table[segment + 1] - table[segment]) * fraction;
+        }
+
+        return input < 0 ? -output : output;
+    }
+
+    public double shape(double input) {
+        return shape((float) input);
+    }
+}
@@ -22,6 +22,7 @@ package com.hfrobots.tnt.corelib.drive;
 
 import com.hfrobots.tnt.corelib.control.OnOffButton;
 import com.hfrobots.tnt.corelib.control.RangeInput;
+import com.hfrobots.tnt.corelib.control.ResponseCurve;
 import com.qualcomm.robotcore.hardware.DcMotor;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
@@ -65,8 +66,8 @@ public class CheesyDrive {
         steerPosition = handleDeadband(steerPosition, steerDeadband);
         throttlePosition = -handleDeadband(throttlePosition, throttleDeadband);
 
-        //steerPosition = scaleValue(steerPosition);
-        throttlePosition = scaleValue(throttlePosition);
+        //steerPosition = throttleCurve.shape(steerPosition);
+        throttlePosition = throttleCurve.shape(throttlePosition);
 
         boolean isQuickTurn = throttlePosition == 0.0D;
 
@@ -141,14 +142,13 @@ public class CheesyDrive {
         return (Math.abs(v) < limit) ? v : limit * (v < 0 ? -1 : 1);
     }
 
-    protected float gain = 0.3F;
-    protected float deadband = 0;
+    // volatile, as handleDrive() may run on a control thread
+    private volatile ResponseCurve throttleCurve = ResponseCurve.DRIVE;
 
-    double scaleValue(double unscaledPower) {
-        if (unscaledPower >= 0) {
-            return deadband + (1-deadband)*(gain * (float)Math.pow(unscaledPower, 3) + (1 - gain) * unscaledPower);
-        } else {
-            return  -1 * deadband + (1-deadband)*(gain * (float)Math.pow(unscaledPower, 3) + (1 - gain) * unscaledPower);
-        }
+    /**
+     * Changes how the throttle stick maps to power, takes effect on the next handleDrive()
+     */
+    public void setThrottleCurve(ResponseCurve throttleCurve) {
+        this.throttleCurve = throttleCurve;
     }
 }
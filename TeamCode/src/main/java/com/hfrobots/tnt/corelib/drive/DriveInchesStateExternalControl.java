@@ -22,8 +22,12 @@ package com.hfrobots.tnt.corelib.drive;
 import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+import com.hfrobots.tnt.corelib.state.EstimatedDuration;
+import com.hfrobots.tnt.corelib.state.MotionModel;
+import com.hfrobots.tnt.corelib.state.Rewindable;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.TimeoutSafetyState;
+import com.hfrobots.tnt.corelib.state.TransitionJournal;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
@@ -35,7 +39,7 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
  * encoder value tracking since FTC motor controllers can't handle two motors on same output
  * or run competing PID loops (no way to synchronize).
  */
-public class DriveInchesStateExternalControl extends TimeoutSafetyState {
+public class DriveInchesStateExternalControl extends TimeoutSafetyState implements EstimatedDuration, Rewindable {
     protected final TankDrive drive;
     protected double powerLevel;
     protected double inchesToDrive;
@@ -105,6 +109,7 @@ public class DriveInchesStateExternalControl extends TimeoutSafetyState {
         if (isTargetReached(currentPositions)) {
             Log.d("VV", "Target reached - stopping drive");
             stopDriving();
+            setTransitionReason(TransitionJournal.REASON_TARGET_REACHED);
 
             return nextState;
         }
@@ -166,6 +171,11 @@ public class DriveInchesStateExternalControl extends TimeoutSafetyState {
         return new double[] { powerLevel, powerLevel };
     }
 
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return motionModel.driveNanos(inchesToDrive, powerLevel);
+    }
+
     @Override
     public void resetToStart() {
         super.resetToStart();
@@ -173,6 +183,25 @@ public class DriveInchesStateExternalControl extends TimeoutSafetyState {
         targetPositions = null;
     }
 
+    @Override
+    public int getMementoSize() {
+        return 2;
+    }
+
+    @Override
+    public void saveMemento(long[] memento) {
+        // the (possibly live-configured) distance and power, everything else starts over
+        memento[0] = Double.doubleToLongBits(inchesToDrive);
+        memento[1] = Double.doubleToLongBits(powerLevel);
+    }
+
+    @Override
+    public void restoreMemento(long[] memento) {
+        resetToStart();
+        inchesToDrive = Double.longBitsToDouble(memento[0]);
+        powerLevel = Double.longBitsToDouble(memento[1]);
+    }
+
     @Override
     public void liveConfigure(DebouncedGamepadButtons buttons) {
 
@@ -31,6 +31,8 @@ import com.qualcomm.robotcore.hardware.TouchSensor;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * State machine state that will drive a TankDrive until the line is sensed and the robot
  * has used two optical distance sensors to square up on the line.
@@ -74,7 +76,9 @@ public class DriveUntilLineState extends TimeoutSafetyState {
 
     private final int MAX_CYCLE_COUNT = 5;
 
-    private long startedOscillatingTimeMs = 0;
+    private boolean startedOscillating = false;
+
+    private long startedOscillatingTimeNanos;
 
     /**
      * Constructs a state machine state that will drive the TankDrive (- is reverse)
@@ -142,8 +146,9 @@ public class DriveUntilLineState extends TimeoutSafetyState {
             double squareUpPower = Math.max(MIN_DRIVE_POWER, powerLevel / 4);
 
             if (inboardLightDetected > inboardThreshold && outboardLightDetected <= inboardThreshold) {
-                if (startedOscillatingTimeMs == 0) {
-                    startedOscillatingTimeMs = System.currentTimeMillis();
+                if (!startedOscillating) {
+                    startedOscillatingTimeNanos = clock.nanoTime();
+                    startedOscillating = true;
                 }
 
                 maybeInitEncoders();
@@ -175,8 +180,9 @@ public class DriveUntilLineState extends TimeoutSafetyState {
                 Log.d("VV", String.format("Found line inboard at level %f, outboard at %f, brake inboard, drive outboard",
                         inboardLightDetected, outboardLightDetected));
             } else if (outboardLightDetected > outboardThreshold && inboardLightDetected <= inboardThreshold) {
-                if (startedOscillatingTimeMs == 0) {
-                    startedOscillatingTimeMs = System.currentTimeMillis();
+                if (!startedOscillating) {
+                    startedOscillatingTimeNanos = clock.nanoTime();
+                    startedOscillating = true;
                 }
 
                 maybeInitEncoders();
@@ -210,10 +216,10 @@ public class DriveUntilLineState extends TimeoutSafetyState {
             }
         }
 
-        if (startedOscillatingTimeMs != 0) {
-            long oscillatingElapsedMs = System.currentTimeMillis() - startedOscillatingTimeMs;
+        if (startedOscillating) {
+            long oscillatingElapsedNanos = clock.nanoTime() - startedOscillatingTimeNanos;
 
-            if (oscillatingElapsedMs > 3000){
+            if (oscillatingElapsedNanos > TimeUnit.SECONDS.toNanos(3)){
                 stopDriving();
                 Log.d("VV", "Oscillating time limit reached");
                 return nextState;
@@ -250,7 +256,7 @@ public class DriveUntilLineState extends TimeoutSafetyState {
 
         cycleCount = 0;
 
-        startedOscillatingTimeMs = 0;
+        startedOscillating = false;
     }
 
     @Override
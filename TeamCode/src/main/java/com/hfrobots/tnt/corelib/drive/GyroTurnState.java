@@ -22,6 +22,8 @@ package com.hfrobots.tnt.corelib.drive;
 import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+import com.hfrobots.tnt.corelib.state.EstimatedDuration;
+import com.hfrobots.tnt.corelib.state.MotionModel;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.TimeoutSafetyState;
 import com.qualcomm.hardware.modernrobotics.ModernRoboticsI2cGyro;
@@ -34,7 +36,7 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
  * State machine state that will turn a TankDrive a relative number of degrees
  * (based on code from the FTC SDK Pushbot example)
  */
-public class GyroTurnState extends TimeoutSafetyState {
+public class GyroTurnState extends TimeoutSafetyState implements EstimatedDuration {
     private static final double     HEADING_THRESHOLD       = 1 ;      // As tight as we can make it with an integer gyro
     private static final double     P_TURN_COEFF            = 0.1;     // Larger is more responsive, but also less stable
 
@@ -82,6 +84,11 @@ public class GyroTurnState extends TimeoutSafetyState {
         return this;
     }
 
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return motionModel.turnNanos(turn.getDegrees(), initialPower);
+    }
+
     @Override
     public void resetToStart() {
         super.resetToStart();
@@ -0,0 +1,115 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.sensors;
+
+import com.hfrobots.tnt.corelib.control.FixedRateControlThread;
+import com.hfrobots.tnt.corelib.state.Clock;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reads a heading (usually from an IMU) on its own thread at a fixed rate, and keeps the
+ * latest reading for OpMode.loop() to use. Reading an IMU over I2C blocks for several
+ * milliseconds, which is time the control loop does not have to spare - with this, the
+ * control loop only ever reads a field.
+ *
+ * Check getAgeNanos() before trusting the heading, the sampling thread stops if the
+ * heading source fails (call checkNotFailed() from loop() to find out why).
+ */
+public class CachedHeading {
+    /**
+     * Where the heading comes from, this is only called on the sampling thread
+     */
+    public interface Source {
+        /** Returns the current heading, in degrees, counter-clockwise positive */
+        float readHeadingDegrees();
+    }
+
+    private final Clock clock;
+
+    private final Source source;
+
+    private final FixedRateControlThread samplingThread;
+
+    private volatile float headingDegrees;
+
+    private volatile long sampledNanos;
+
+    private volatile boolean sampled = false;
+
+    public CachedHeading(String name, long period, TimeUnit unit, Source source) {
+        this(Clock.SYSTEM, name, period, unit, source);
+    }
+
+    public CachedHeading(Clock clock, String name, long period, TimeUnit unit, Source source) {
+        this.clock = clock;
+        this.source = source;
+        this.samplingThread = new FixedRateControlThread(name, period, unit, new Runnable() {
+            @Override
+            public void run() {
+                sample();
+            }
+        });
+    }
+
+    public void start() {
+        samplingThread.start();
+    }
+
+    public void stop() {
+        samplingThread.stop();
+    }
+
+    public void checkNotFailed() {
+        samplingThread.checkNotFailed();
+    }
+
+    /**
+     * Reads the heading from the source once, on the calling thread. The sampling thread
+     * calls this every period.
+     */
+    public void sample() {
+        headingDegrees = source.readHeadingDegrees();
+        sampledNanos = clock.nanoTime();
+        sampled = true;
+    }
+
+    public boolean hasHeading() {
+        return sampled;
+    }
+
+    /**
+     * Returns the most recently read heading, in degrees
+     */
+    public float getHeadingDegrees() {
+        return headingDegrees;
+    }
+
+    /**
+     * Returns how long ago the heading was read, or Long.MAX_VALUE if it never has been
+     */
+    public long getAgeNanos() {
+        if (!sampled) {
+            return Long.MAX_VALUE;
+        }
+
+        return clock.nanoTime() - sampledNanos;
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chooses, each time it is entered, which of several branches to run, for example turning
+ * one way or the other depending on the color of a jewel. The branches are built up front
+ * along with the rest of the state machine, rather than when the choice is made, so that
+ * nothing is allocated while running, compile() knows about them, and the debugger can go
+ * back through them.
+ *
+ * Each branch runs from its first to its last state, and then continues with this state's
+ * next state. Taking a branch is journaled as REASON_BRANCH_CHOSEN.
+ */
+public class ChoiceState extends State {
+    /** Returned by a Chooser to skip the branches and go straight to the next state */
+    public static final int NEXT_STATE = -1;
+
+    public interface Chooser {
+        /**
+         * Returns the index (in the order they were added) of the branch to run,
+         * or NEXT_STATE
+         */
+        int choose();
+    }
+
+    private final Chooser chooser;
+
+    private final List<State> firstStates = new ArrayList<>();
+
+    private final List<State> lastStates = new ArrayList<>();
+
+    private State[] firstBranchStates = new State[0];
+
+    public ChoiceState(String name, Telemetry telemetry, Chooser chooser) {
+        super(name, telemetry);
+        this.chooser = chooser;
+    }
+
+    /**
+     * Adds a branch consisting of a single state
+     */
+    public void addBranch(State state) {
+        addBranch(state, state);
+    }
+
+    /**
+     * Adds a branch which runs from firstState, through the next states of each state,
+     * to lastState
+     */
+    public void addBranch(State firstState, State lastState) {
+        if (firstState == null || lastState == null) {
+            throw new IllegalArgumentException("Branch states can not be null");
+        }
+
+        firstStates.add(firstState);
+        lastStates.add(lastState);
+        lastState.setNextState(nextState);
+        firstBranchStates = firstStates.toArray(new State[firstStates.size()]);
+    }
+
+    @Override
+    public void setNextState(State state) {
+        super.setNextState(state);
+
+        // every branch re-joins at the next state
+        for (int i = 0; i < lastStates.size(); i++) {
+            lastStates.get(i).setNextState(state);
+        }
+    }
+
+    @Override
+    public State doStuffAndGetNextState() {
+        int branch = chooser.choose();
+
+        if (branch == NEXT_STATE) {
+            return nextState;
+        }
+
+        if (branch < 0 || branch >= firstBranchStates.length) {
+            throw new IllegalStateException("State '" + getName() + "' chose branch " + branch
+                    + ", but only has " + firstBranchStates.length);
+        }
+
+        // the branch taken is the "to" state of the transition, in the journal or StateMachine's log
+        setTransitionReason(TransitionJournal.REASON_BRANCH_CHOSEN);
+
+        return firstBranchStates[branch];
+    }
+
+    @Override
+    protected State[] getBranchStates() {
+        return firstBranchStates;
+    }
+
+    @Override
+    public void resetToStart() {
+
+    }
+
+    @Override
+    public void liveConfigure(DebouncedGamepadButtons buttons) {
+
+    }
+}
@@ -0,0 +1,65 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+/**
+ * A behavior run by the CommandScheduler - a State, which may be a StateMachineState or
+ * ParallelState - along with the subsystems it requires. The command is finished once its
+ * state returns a state other than itself (the state's next state is not followed).
+ */
+public class Command {
+    private final State state;
+
+    private final Subsystem[] requirements;
+
+    /** Maintained by the CommandScheduler */
+    boolean scheduled = false;
+
+    public Command(State state, Subsystem... requirements) {
+        if (state == null) {
+            throw new IllegalArgumentException("Command state can not be null");
+        }
+
+        this.state = state;
+        this.requirements = requirements;
+    }
+
+    public String getName() {
+        return state.getName();
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    Subsystem[] getRequirements() {
+        return requirements;
+    }
+
+    public boolean requires(Subsystem subsystem) {
+        for (Subsystem requirement : requirements) {
+            if (requirement == subsystem) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
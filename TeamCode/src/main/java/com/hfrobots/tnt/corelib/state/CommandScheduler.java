@@ -0,0 +1,150 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Runs Commands concurrently, as long as they don't require the same Subsystem. Scheduling
+ * a command pre-empts (cancels) any running command that requires one of the same
+ * subsystems, so the last one asked for wins. A subsystem's default command is run
+ * whenever nothing else is using that subsystem.
+ *
+ * Call run() once from each OpMode.loop(). Running commands does not allocate.
+ */
+public class CommandScheduler {
+    private final List<Command> runningCommands = new ArrayList<>();
+
+    private final List<Subsystem> subsystemsWithDefaults = new ArrayList<>();
+
+    /**
+     * Sets the command to run whenever nothing else is using the given subsystem, which
+     * must be the only subsystem the command requires
+     */
+    public void setDefaultCommand(Subsystem subsystem, Command command) {
+        if (command.getRequirements().length != 1 || !command.requires(subsystem)) {
+            throw new IllegalArgumentException("Default command " + command.getName()
+                    + " must require only " + subsystem.getName());
+        }
+
+        subsystem.defaultCommand = command;
+
+        if (!subsystemsWithDefaults.contains(subsystem)) {
+            subsystemsWithDefaults.add(subsystem);
+        }
+    }
+
+    /**
+     * Starts running the given command (from its first state) with the next call to run(),
+     * cancelling any running commands that use the same subsystems. Does nothing if the
+     * command is already running.
+     */
+    public void schedule(Command command) {
+        if (command.scheduled) {
+            return;
+        }
+
+        for (Subsystem requirement : command.getRequirements()) {
+            Command conflictingCommand = requirement.currentCommand;
+
+            if (conflictingCommand != null) {
+                Log.d(LOG_TAG, "command " + conflictingCommand.getName() + " pre-empted by " + command.getName());
+
+                cancel(conflictingCommand);
+            }
+        }
+
+        for (Subsystem requirement : command.getRequirements()) {
+            requirement.currentCommand = command;
+        }
+
+        command.getState().resetToStart();
+        command.scheduled = true;
+        runningCommands.add(command);
+    }
+
+    /**
+     * Stops running the given command, if it is running, and stops the subsystems it was using
+     */
+    public void cancel(Command command) {
+        if (!command.scheduled) {
+            return;
+        }
+
+        release(command);
+
+        for (Subsystem requirement : command.getRequirements()) {
+            requirement.stop();
+        }
+    }
+
+    /**
+     * Cancels every running command, call from OpMode.stop()
+     */
+    public void cancelAll() {
+        while (!runningCommands.isEmpty()) {
+            cancel(runningCommands.get(runningCommands.size() - 1));
+        }
+    }
+
+    public boolean isScheduled(Command command) {
+        return command.scheduled;
+    }
+
+    /**
+     * Starts the default commands for free subsystems, then runs one loop of every
+     * running command, in the order they were scheduled
+     */
+    public void run() {
+        for (int i = 0; i < subsystemsWithDefaults.size(); i++) {
+            Subsystem subsystem = subsystemsWithDefaults.get(i);
+
+            if (subsystem.currentCommand == null) {
+                schedule(subsystem.defaultCommand);
+            }
+        }
+
+        for (int i = 0; i < runningCommands.size(); i++) {
+            Command command = runningCommands.get(i);
+            State state = command.getState();
+
+            if (state.doStuffAndGetNextState() != state) {
+                release(command);
+                i--;
+            }
+        }
+    }
+
+    private void release(Command command) {
+        for (Subsystem requirement : command.getRequirements()) {
+            if (requirement.currentCommand == command) {
+                requirement.currentCommand = null;
+            }
+        }
+
+        command.scheduled = false;
+        runningCommands.remove(command);
+    }
+}
@@ -0,0 +1,93 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How much of the current loop (cycle) the control outputs may use before non-critical
+ * work - telemetry, diagnostic logging - has to give way. The OpMode calls startCycle() at
+ * the top of loop(), does its control work first, and then only does diagnostics while
+ * hasTimeForDiagnostics() says there is time left.
+ */
+public class CycleBudget {
+    private final Clock clock;
+
+    private final long budgetNanos;
+
+    private long cycleStartNanos;
+
+    private boolean cycleStarted = false;
+
+    private long skippedCount = 0;
+
+    public CycleBudget(long budget, TimeUnit unit) {
+        this(Clock.SYSTEM, budget, unit);
+    }
+
+    public CycleBudget(Clock clock, long budget, TimeUnit unit) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Cycle budget must be positive");
+        }
+
+        this.clock = clock;
+        this.budgetNanos = unit.toNanos(budget);
+    }
+
+    /**
+     * Call at the top of each loop
+     */
+    public void startCycle() {
+        cycleStartNanos = clock.nanoTime();
+        cycleStarted = true;
+    }
+
+    /**
+     * Returns the time used so far in this cycle, or 0 if no cycle has started
+     */
+    public long getElapsedNanos() {
+        if (!cycleStarted) {
+            return 0;
+        }
+
+        return clock.nanoTime() - cycleStartNanos;
+    }
+
+    /**
+     * Returns true when there is time left in this cycle for diagnostics, otherwise
+     * counts the diagnostics as skipped and returns false
+     */
+    public boolean hasTimeForDiagnostics() {
+        if (getElapsedNanos() < budgetNanos) {
+            return true;
+        }
+
+        skippedCount++;
+
+        return false;
+    }
+
+    /**
+     * Returns how many times diagnostics were skipped (deferred or dropped) for lack of time
+     */
+    public long getSkippedCount() {
+        return skippedCount;
+    }
+}
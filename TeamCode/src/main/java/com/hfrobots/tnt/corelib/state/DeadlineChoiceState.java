@@ -0,0 +1,153 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks, when entered, which way a route continues based on how much time is left before
+ * the state machine's deadline (see StateMachine.setDeadline()).
+ *
+ * The next state (worth nextStatePoints) and each alternative added with addAlternative()
+ * are the first states of a branch. Each branch is estimated from its first state to the end
+ * of the route (see RouteDurationEstimator), and the branch worth the most points that is
+ * expected to finish in time is taken, so that - for example - the robot parks rather than
+ * running out of time part way to the second beacon. If no branch is expected to finish in
+ * time, the fastest one is taken.
+ *
+ * Branches are estimated once, the first time this state is entered, so the route must be
+ * completely built by then. Taking an alternative is journaled as REASON_RUNNING_LATE.
+ */
+public class DeadlineChoiceState extends State {
+    private final StateMachine deadlineStateMachine;
+
+    private final RouteDurationEstimator estimator;
+
+    private final int nextStatePoints;
+
+    private final List<State> alternativeStates = new ArrayList<>();
+
+    private final List<Integer> alternativePoints = new ArrayList<>();
+
+    private State[] branchStates = new State[0];
+
+    /** Estimated time from the first state of each alternative to the end of the route */
+    private long[] alternativeNanos;
+
+    private long nextStateNanos;
+
+    public DeadlineChoiceState(String name, Telemetry telemetry, StateMachine deadlineStateMachine,
+                               MotionModel motionModel, int nextStatePoints) {
+        super(name, telemetry);
+        this.deadlineStateMachine = deadlineStateMachine;
+        this.estimator = new RouteDurationEstimator(motionModel);
+        this.nextStatePoints = nextStatePoints;
+    }
+
+    /**
+     * Adds a branch, starting at firstState, that may be taken instead of the next state
+     */
+    public void addAlternative(State firstState, int points) {
+        if (firstState == null) {
+            throw new IllegalArgumentException("Alternative state can not be null");
+        }
+
+        alternativeStates.add(firstState);
+        alternativePoints.add(points);
+        branchStates = alternativeStates.toArray(new State[alternativeStates.size()]);
+        alternativeNanos = null;
+    }
+
+    /**
+     * Estimates each branch, which doesn't change once the route has been built
+     */
+    private void estimateBranches() {
+        nextStateNanos = estimator.estimateNanos(nextState);
+        alternativeNanos = new long[alternativeStates.size()];
+
+        for (int i = 0; i < alternativeNanos.length; i++) {
+            alternativeNanos[i] = estimator.estimateNanos(alternativeStates.get(i));
+        }
+    }
+
+    @Override
+    public State doStuffAndGetNextState() {
+        if (alternativeNanos == null) {
+            estimateBranches();
+        }
+
+        long remainingNanos = deadlineStateMachine.getRemainingNanos();
+
+        State chosenState = nextState;
+        int chosenPoints = nextStatePoints;
+        long chosenNanos = nextStateNanos;
+        boolean chosenFits = chosenNanos <= remainingNanos;
+
+        for (int i = 0; i < alternativeNanos.length; i++) {
+            State state = branchStates[i];
+            int points = alternativePoints.get(i);
+            long nanos = alternativeNanos[i];
+            boolean fits = nanos <= remainingNanos;
+
+            final boolean better;
+
+            if (fits != chosenFits) {
+                better = fits;
+            } else if (fits && points != chosenPoints) {
+                better = points > chosenPoints;
+            } else {
+                better = nanos < chosenNanos;
+            }
+
+            if (better) {
+                chosenState = state;
+                chosenPoints = points;
+                chosenNanos = nanos;
+                chosenFits = fits;
+            }
+        }
+
+        if (chosenState != nextState) {
+            setTransitionReason(TransitionJournal.REASON_RUNNING_LATE);
+        }
+
+        return chosenState;
+    }
+
+    @Override
+    protected State[] getBranchStates() {
+        return branchStates;
+    }
+
+    @Override
+    public void resetToStart() {
+
+    }
+
+    @Override
+    public void liveConfigure(DebouncedGamepadButtons buttons) {
+
+    }
+}
@@ -7,23 +7,29 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
 
 import java.util.concurrent.TimeUnit;
 
-public class DelayState extends State {
-    private long startTime = 0;
-    private long thresholdTimeMs;
+public class DelayState extends State implements EstimatedDuration {
+    private boolean started = false;
+    private long startTimeNanos;
+    private long timerHandle;
+    private final long thresholdTimeNanos;
+    private final long thresholdTimeMs;
 
     public DelayState(String name, Telemetry telemetry, long val, TimeUnit unit) {
         super(name, telemetry);
+        thresholdTimeNanos = unit.toNanos(val);
         thresholdTimeMs = unit.toMillis(val);
     }
 
     public DelayState(String name, Telemetry telemetry, long numberOfSeconds) {
-        super(name, telemetry);
-        thresholdTimeMs = TimeUnit.SECONDS.toMillis(numberOfSeconds);
+        this(name, telemetry, numberOfSeconds, TimeUnit.SECONDS);
     }
 
     @Override
     public void resetToStart() {
-        startTime = 0;
+        if (started) {
+            getTimerWheel().cancel(timerHandle);
+            started = false;
+        }
     }
 
     @Override
@@ -31,21 +37,27 @@ public class DelayState extends State {
 
     }
 
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return thresholdTimeNanos;
+    }
+
     @Override
     public State doStuffAndGetNextState() {
-        if (startTime == 0) {
-            startTime = System.currentTimeMillis();
+        if (!started) {
+            startTimeNanos = clock.nanoTime();
+            timerHandle = getTimerWheel().schedule(thresholdTimeNanos, TimeUnit.NANOSECONDS);
+            started = true;
+
             return this;
         }
 
-        long now = System.currentTimeMillis();
-        long elapsedMs = now - startTime;
-
-        if (elapsedMs > thresholdTimeMs) {
+        if (getTimerWheel().isExpired(timerHandle)) {
             return nextState;
         }
 
-        telemetry.addData("04", "Delay: %d of %d ms", elapsedMs, thresholdTimeMs);
+        long elapsedNanos = clock.nanoTime() - startTimeNanos;
+        telemetry.addData("04", "Delay: %d of %d ms", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), thresholdTimeMs);
         return this;
     }
 }
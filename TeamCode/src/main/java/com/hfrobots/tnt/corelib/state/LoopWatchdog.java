@@ -0,0 +1,195 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import android.util.Log;
+
+import java.util.concurrent.TimeUnit;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Times each loop (of a StateMachine, or of an OpMode's loop()) against a budget, and when
+ * too many loops in a row have gone over it - for example because an I2C read has stalled -
+ * runs a stop hook, which should set every drive motor's power to zero, so that the robot
+ * does not keep driving at whatever power it was last given.
+ *
+ * Overruns are found when the loop ends, so a loop which never returns can not be caught.
+ */
+public class LoopWatchdog {
+    private final Clock clock;
+
+    private final long budgetNanos;
+
+    private final int maxConsecutiveOverruns;
+
+    private final Runnable stopHook;
+
+    private long loopStartNanos;
+
+    private boolean loopStarted = false;
+
+    private long cycle = 0;
+
+    private int consecutiveOverruns = 0;
+
+    private long overrunCount = 0;
+
+    private int tripCount = 0;
+
+    private String lastOverrunName;
+
+    private long lastOverrunCycle = -1;
+
+    private long lastOverrunNanos = 0;
+
+    public LoopWatchdog(long budget, TimeUnit unit, int maxConsecutiveOverruns, Runnable stopHook) {
+        this(Clock.SYSTEM, budget, unit, maxConsecutiveOverruns, stopHook);
+    }
+
+    public LoopWatchdog(Clock clock, long budget, TimeUnit unit, int maxConsecutiveOverruns, Runnable stopHook) {
+        if (budget <= 0) {
+            throw new IllegalArgumentException("Loop budget must be positive");
+        }
+
+        if (maxConsecutiveOverruns < 1) {
+            throw new IllegalArgumentException("Must allow at least one overrun before stopping");
+        }
+
+        if (stopHook == null) {
+            throw new IllegalArgumentException("Stop hook can not be null");
+        }
+
+        this.clock = clock;
+        this.budgetNanos = unit.toNanos(budget);
+        this.maxConsecutiveOverruns = maxConsecutiveOverruns;
+        this.stopHook = stopHook;
+    }
+
+    /**
+     * Call at the start of each loop
+     */
+    public void loopStarted() {
+        loopStartNanos = clock.nanoTime();
+        loopStarted = true;
+    }
+
+    /**
+     * Call at the end of each loop, with the name of what ran (for example the current
+     * state). Returns true when this loop was one too many over budget, in which case the
+     * stop hook has been run.
+     */
+    public boolean loopEnded(String name) {
+        if (!loopStarted) {
+            throw new IllegalStateException("loopEnded() called without loopStarted()");
+        }
+
+        loopStarted = false;
+        cycle++;
+
+        long elapsedNanos = clock.nanoTime() - loopStartNanos;
+
+        if (elapsedNanos <= budgetNanos) {
+            consecutiveOverruns = 0;
+
+            return false;
+        }
+
+        overrunCount++;
+        consecutiveOverruns++;
+        lastOverrunName = name;
+        lastOverrunCycle = cycle;
+        lastOverrunNanos = elapsedNanos;
+
+        if (consecutiveOverruns < maxConsecutiveOverruns) {
+            return false;
+        }
+
+        if (consecutiveOverruns == maxConsecutiveOverruns) {
+            tripCount++;
+            Log.e(LOG_TAG, String.format("%d loops over budget in a row, last in %s at cycle %d took %.2f ms - stopping",
+                    consecutiveOverruns, name, cycle, elapsedNanos / 1000000.0));
+        }
+
+        // keep stopping for as long as the loops are slow, something may have driven again
+        stopHook.run();
+
+        return true;
+    }
+
+    /**
+     * Returns true while the most recent loops have all been over budget, and there
+     * have been enough of them to stop the robot
+     */
+    public boolean isTripped() {
+        return consecutiveOverruns >= maxConsecutiveOverruns;
+    }
+
+    /**
+     * Returns true when the most recent loop was within budget
+     */
+    public boolean isLastLoopWithinBudget() {
+        return consecutiveOverruns == 0;
+    }
+
+    public long getOverrunCount() {
+        return overrunCount;
+    }
+
+    /**
+     * Returns how many times the stop hook was run because of a new run of overruns
+     */
+    public int getTripCount() {
+        return tripCount;
+    }
+
+    /**
+     * Returns the name given for the last loop that went over budget, or null if none has
+     */
+    public String getLastOverrunName() {
+        return lastOverrunName;
+    }
+
+    /**
+     * Returns the cycle (counting loops from 1) of the last loop that went over budget,
+     * or -1 if none has
+     */
+    public long getLastOverrunCycle() {
+        return lastOverrunCycle;
+    }
+
+    public long getLastOverrunNanos() {
+        return lastOverrunNanos;
+    }
+
+    /**
+     * Forgets all loops seen so far
+     */
+    public void reset() {
+        loopStarted = false;
+        cycle = 0;
+        consecutiveOverruns = 0;
+        overrunCount = 0;
+        tripCount = 0;
+        lastOverrunName = null;
+        lastOverrunCycle = -1;
+        lastOverrunNanos = 0;
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * How fast a particular robot drives and turns, used to estimate how long the
+ * states in a route will take. Moves are modeled as accelerating at a constant rate
+ * to a top speed (which scales with the power level) and decelerating again.
+ */
+public class MotionModel {
+    private final double maxVelocityInchesPerSecond;
+
+    private final double accelerationInchesPerSecondSquared;
+
+    private final double maxTurnRateDegreesPerSecond;
+
+    private final double turnAccelerationDegreesPerSecondSquared;
+
+    private final long loopPeriodNanos;
+
+    /**
+     * @param maxVelocityInchesPerSecond top speed when driving at full power
+     * @param maxTurnRateDegreesPerSecond top turn rate when turning at full power
+     * @param loopPeriodMillis typical time between calls to loop(), states which finish
+     *                         right away take this long
+     */
+    public MotionModel(double maxVelocityInchesPerSecond, double accelerationInchesPerSecondSquared,
+                       double maxTurnRateDegreesPerSecond, double turnAccelerationDegreesPerSecondSquared,
+                       long loopPeriodMillis) {
+        if (maxVelocityInchesPerSecond <= 0 || accelerationInchesPerSecondSquared <= 0
+                || maxTurnRateDegreesPerSecond <= 0 || turnAccelerationDegreesPerSecondSquared <= 0) {
+            throw new IllegalArgumentException("Velocities and accelerations must be positive");
+        }
+
+        this.maxVelocityInchesPerSecond = maxVelocityInchesPerSecond;
+        this.accelerationInchesPerSecondSquared = accelerationInchesPerSecondSquared;
+        this.maxTurnRateDegreesPerSecond = maxTurnRateDegreesPerSecond;
+        this.turnAccelerationDegreesPerSecondSquared = turnAccelerationDegreesPerSecondSquared;
+        this.loopPeriodNanos = TimeUnit.MILLISECONDS.toNanos(loopPeriodMillis);
+    }
+
+    public long driveNanos(double inches, double powerLevel) {
+        return moveNanos(Math.abs(inches), maxVelocityInchesPerSecond * Math.abs(powerLevel),
+                accelerationInchesPerSecondSquared);
+    }
+
+    public long turnNanos(double degrees, double powerLevel) {
+        return moveNanos(Math.abs(degrees), maxTurnRateDegreesPerSecond * Math.abs(powerLevel),
+                turnAccelerationDegreesPerSecondSquared);
+    }
+
+    public long getLoopPeriodNanos() {
+        return loopPeriodNanos;
+    }
+
+    private static long moveNanos(double distance, double maxVelocity, double acceleration) {
+        if (distance == 0) {
+            return 0;
+        }
+
+        if (maxVelocity == 0) {
+            return Long.MAX_VALUE; // never gets there
+        }
+
+        final double seconds;
+
+        if (distance <= maxVelocity * maxVelocity / acceleration) {
+            // never reaches top speed, accelerate half way then decelerate
+            seconds = 2 * Math.sqrt(distance / acceleration);
+        } else {
+            // ramp up and down, cruise at top speed in between
+            seconds = distance / maxVelocity + maxVelocity / acceleration;
+        }
+
+        return (long) (seconds * TimeUnit.SECONDS.toNanos(1));
+    }
+}
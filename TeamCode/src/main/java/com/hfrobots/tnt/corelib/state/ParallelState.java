@@ -0,0 +1,168 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * A state that runs several other states during the same loop, for example driving
+ * while spinning up the shooter.
+ *
+ * Each child state is ticked until it returns a state other than itself, at which point
+ * it is considered done (the child's own next state is not followed, use a nested
+ * state machine for a sequence). When enough of the children are done - depending on
+ * the JoinPolicy - this state moves on to its next state. Children that were not done
+ * at that point are no longer ticked, so the next state should leave any mechanisms
+ * they were running in a safe state.
+ */
+public class ParallelState extends State implements NestedEstimatedDuration {
+    public enum JoinPolicy {
+        /** Done when every child is done */
+        ALL,
+        /** Done as soon as any child is done */
+        ANY,
+        /** Done when the leader (the first child) is done */
+        LEADER
+    }
+
+    private final State[] children;
+
+    private final boolean[] childDone;
+
+    private final JoinPolicy joinPolicy;
+
+    public ParallelState(String name, Telemetry telemetry, JoinPolicy joinPolicy, State... children) {
+        super(name, telemetry);
+
+        if (children.length == 0) {
+            throw new IllegalArgumentException("ParallelState needs at least one child state");
+        }
+
+        this.joinPolicy = joinPolicy;
+        this.children = children;
+        this.childDone = new boolean[children.length];
+    }
+
+    /**
+     * Creates a parallel state which is done when the leader is done, regardless of
+     * whether the followers are
+     */
+    public static ParallelState withLeader(String name, Telemetry telemetry, State leader, State... followers) {
+        State[] children = new State[followers.length + 1];
+        children[0] = leader;
+        System.arraycopy(followers, 0, children, 1, followers.length);
+
+        return new ParallelState(name, telemetry, JoinPolicy.LEADER, children);
+    }
+
+    @Override
+    public State doStuffAndGetNextState() {
+        int numDone = 0;
+
+        for (int i = 0; i < children.length; i++) {
+            if (!childDone[i]) {
+                State child = children[i];
+
+                if (child.doStuffAndGetNextState() != child) {
+                    childDone[i] = true;
+                }
+            }
+
+            if (childDone[i]) {
+                numDone++;
+            }
+        }
+
+        switch (joinPolicy) {
+            case ALL:
+                return numDone == children.length ? nextState : this;
+            case ANY:
+                return numDone > 0 ? nextState : this;
+            case LEADER:
+                return childDone[0] ? nextState : this;
+            default:
+                throw new IllegalStateException("Unknown join policy " + joinPolicy);
+        }
+    }
+
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return estimateDurationNanos(new RouteDurationEstimator(motionModel));
+    }
+
+    @Override
+    public long estimateDurationNanos(RouteDurationEstimator estimator) {
+        long leaderNanos = estimator.estimateStateNanos(children[0]);
+        long shortestNanos = leaderNanos;
+        long longestNanos = leaderNanos;
+
+        for (int i = 1; i < children.length; i++) {
+            long childNanos = estimator.estimateStateNanos(children[i]);
+            shortestNanos = Math.min(shortestNanos, childNanos);
+            longestNanos = Math.max(longestNanos, childNanos);
+        }
+
+        switch (joinPolicy) {
+            case ALL:
+                return longestNanos;
+            case ANY:
+                return shortestNanos;
+            case LEADER:
+                return leaderNanos;
+            default:
+                throw new IllegalStateException("Unknown join policy " + joinPolicy);
+        }
+    }
+
+    @Override
+    public void resetToStart() {
+        for (int i = 0; i < children.length; i++) {
+            childDone[i] = false;
+            children[i].resetToStart();
+        }
+    }
+
+    @Override
+    public void setClock(Clock clock) {
+        super.setClock(clock);
+
+        for (State child : children) {
+            child.setClock(clock);
+        }
+    }
+
+    @Override
+    public void setTimerWheel(TimerWheel timerWheel) {
+        super.setTimerWheel(timerWheel);
+
+        for (State child : children) {
+            child.setTimerWheel(timerWheel);
+        }
+    }
+
+    @Override
+    public void liveConfigure(DebouncedGamepadButtons buttons) {
+        for (State child : children) {
+            child.liveConfigure(buttons);
+        }
+    }
+}
@@ -0,0 +1,44 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+/**
+ * Implemented by states whose settings (for example those changed with liveConfigure())
+ * should survive the debugger's "go back". The StateMachine saves a memento of each such
+ * state into storage it has already allocated when the state starts running, and going
+ * back to the state restores that memento instead of calling resetToStart().
+ */
+public interface Rewindable {
+    /**
+     * Returns the number of values this state saves in a memento, which must not change
+     */
+    int getMementoSize();
+
+    /**
+     * Saves this state's settings into the first getMementoSize() values of the memento,
+     * doubles can be saved with Double.doubleToLongBits()
+     */
+    void saveMemento(long[] memento);
+
+    /**
+     * Puts this state back the way it was when the memento was saved, ready to run again
+     */
+    void restoreMemento(long[] memento);
+}
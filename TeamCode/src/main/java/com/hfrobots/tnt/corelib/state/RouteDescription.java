@@ -0,0 +1,241 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * Autonomous routes described as text, one step per line, rather than as code, so that
+ * routes can be tuned or added by editing a file on the robot controller.
+ *
+ * <pre>
+ * # comments (to the end of a line) and blank lines are ignored
+ * route Park on ramp 1
+ * drive 20 timeout=15000 # inches
+ * shoot
+ * turn ccw 97
+ * drive 32
+ * done Park on ramp 1 done
+ * </pre>
+ *
+ * Each "route" line starts a new route, the lines that follow are its steps - a command,
+ * arguments and name=value options. What the commands mean is up to the RouteStepFactory
+ * that turns steps into States (for example mirroring turns for the alliance).
+ *
+ * Parsed descriptions are cached by their content for the life of the app, so running
+ * an OpMode again does not re-parse its routes.
+ */
+public class RouteDescription {
+    private static final Map<String, RouteDescription> parsedDescriptions = new HashMap<>();
+
+    private final Map<String, List<RouteStep>> routes;
+
+    private RouteDescription(Map<String, List<RouteStep>> routes) {
+        this.routes = routes;
+    }
+
+    /**
+     * Returns the parsed form of the given route description, parsing it only if the
+     * same text has not been parsed before.
+     *
+     * @throws IllegalArgumentException if the description is not valid
+     */
+    public static RouteDescription parse(String text) {
+        synchronized (parsedDescriptions) {
+            RouteDescription description = parsedDescriptions.get(text);
+
+            if (description == null) {
+                description = new RouteDescription(parseRoutes(text));
+                parsedDescriptions.put(text, description);
+            }
+
+            return description;
+        }
+    }
+
+    /**
+     * Parses the route description in the given file, or the given default description
+     * if the file does not exist, can't be read or is not valid (so that a bad edit can't
+     * stop autonomous from running). Every step in the file is also checked by turning it
+     * into a State with the given factory, so an unknown command or bad argument is caught
+     * here rather than when the route is built.
+     */
+    public static RouteDescription load(File file, String defaultText, RouteStepFactory stepFactory) {
+        if (file.exists()) {
+            try {
+                RouteDescription description = parse(readFile(file));
+                description.checkSteps(stepFactory);
+                Log.i(LOG_TAG, "Using routes from " + file);
+
+                return description;
+            } catch (IOException ioe) {
+                Log.e(LOG_TAG, "Could not read routes from " + file + ", using built-in routes", ioe);
+            } catch (IllegalArgumentException iae) {
+                Log.e(LOG_TAG, "Invalid routes in " + file + ", using built-in routes", iae);
+            }
+        }
+
+        return parse(defaultText);
+    }
+
+    /**
+     * Turns every step of every route into a State, which is thrown away
+     *
+     * @throws IllegalArgumentException if the factory finds a step which is not valid
+     */
+    private void checkSteps(RouteStepFactory stepFactory) {
+        for (List<RouteStep> steps : routes.values()) {
+            for (RouteStep step : steps) {
+                stepFactory.newState(step);
+            }
+        }
+    }
+
+    public List<String> getRouteNames() {
+        return Collections.unmodifiableList(new ArrayList<>(routes.keySet()));
+    }
+
+    public List<RouteStep> getSteps(String routeName) {
+        List<RouteStep> steps = routes.get(routeName);
+
+        if (steps == null) {
+            throw new IllegalArgumentException("No route named '" + routeName + "'");
+        }
+
+        return steps;
+    }
+
+    /**
+     * Adds a new State for each step of the named route, in order, to the given state machine
+     */
+    public void addToStateMachine(String routeName, StateMachine stateMachine, RouteStepFactory stepFactory) {
+        for (RouteStep step : getSteps(routeName)) {
+            stateMachine.addSequential(stepFactory.newState(step));
+        }
+    }
+
+    private static Map<String, List<RouteStep>> parseRoutes(String text) {
+        Map<String, List<RouteStep>> routes = new LinkedHashMap<>();
+        List<RouteStep> currentSteps = null;
+        String currentRouteName = null;
+        String[] lines = text.split("\r?\n");
+
+        for (int i = 0; i < lines.length; i++) {
+            int lineNumber = i + 1;
+            String line = lines[i];
+            int commentAt = line.indexOf('#');
+
+            if (commentAt != -1) {
+                line = line.substring(0, commentAt);
+            }
+
+            line = line.trim();
+
+            if (line.isEmpty()) {
+                continue;
+            }
+
+            String[] tokens = line.split("\\s+");
+            String command = tokens[0].toLowerCase(Locale.US);
+
+            if ("route".equals(command)) {
+                checkNotEmpty(currentRouteName, currentSteps);
+
+                currentRouteName = line.substring(tokens[0].length()).trim();
+
+                if (currentRouteName.isEmpty()) {
+                    throw new IllegalArgumentException("Route line " + lineNumber + ": route has no name");
+                }
+
+                if (routes.containsKey(currentRouteName)) {
+                    throw new IllegalArgumentException("Route line " + lineNumber + ": more than one route named '"
+                            + currentRouteName + "'");
+                }
+
+                currentSteps = new ArrayList<>();
+                routes.put(currentRouteName, Collections.unmodifiableList(currentSteps));
+
+                continue;
+            }
+
+            if (currentSteps == null) {
+                throw new IllegalArgumentException("Route line " + lineNumber + " '" + line
+                        + "': step is not part of a route");
+            }
+
+            List<String> arguments = new ArrayList<>();
+            Map<String, String> options = new HashMap<>();
+
+            for (int t = 1; t < tokens.length; t++) {
+                String token = tokens[t];
+                int equalsAt = token.indexOf('=');
+
+                if (equalsAt > 0) {
+                    options.put(token.substring(0, equalsAt).toLowerCase(Locale.US), token.substring(equalsAt + 1));
+                } else {
+                    arguments.add(token);
+                }
+            }
+
+            currentSteps.add(new RouteStep(command, arguments, options, lineNumber, line));
+        }
+
+        checkNotEmpty(currentRouteName, currentSteps);
+
+        return routes;
+    }
+
+    private static void checkNotEmpty(String routeName, List<RouteStep> steps) {
+        if (steps != null && steps.isEmpty()) {
+            throw new IllegalArgumentException("Route '" + routeName + "' has no steps");
+        }
+    }
+
+    private static String readFile(File file) throws IOException {
+        StringBuilder contents = new StringBuilder();
+        char[] buffer = new char[4096];
+
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), Charset.forName("UTF-8"))) {
+            int charsRead;
+
+            while ((charsRead = reader.read(buffer)) != -1) {
+                contents.append(buffer, 0, charsRead);
+            }
+        }
+
+        return contents.toString();
+    }
+}
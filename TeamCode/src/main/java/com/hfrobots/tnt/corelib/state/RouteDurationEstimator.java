@@ -0,0 +1,128 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Predicts how long a route (a built, but not yet finished, StateMachine) will take, by
+ * following the next state of each state from the current one and adding up how long
+ * each state is expected to take (see EstimatedDuration).
+ *
+ * Where a state can pick some other state than its next state (those it returns from
+ * getBranchStates(), such as a ChoiceState's branches), the longest way to the end of
+ * the route is used.
+ */
+public class RouteDurationEstimator {
+    private final MotionModel motionModel;
+
+    public RouteDurationEstimator(MotionModel motionModel) {
+        this.motionModel = motionModel;
+    }
+
+    /**
+     * Returns the expected time, in nanoseconds, for the given state machine to run from
+     * its current state (including any start delay) until it finishes
+     */
+    public long estimateNanos(StateMachine stateMachine) {
+        return estimateNanos(stateMachine.getCurrentState());
+    }
+
+    /**
+     * Returns the route names ordered from fastest to slowest, given each route's
+     * estimated time
+     */
+    public static List<String> rankFastestFirst(final Map<String, Long> estimatedNanosByRoute) {
+        List<String> routeNames = new ArrayList<>(estimatedNanosByRoute.keySet());
+
+        Collections.sort(routeNames, new Comparator<String>() {
+            @Override
+            public int compare(String route1, String route2) {
+                return Long.compare(estimatedNanosByRoute.get(route1), estimatedNanosByRoute.get(route2));
+            }
+        });
+
+        return routeNames;
+    }
+
+    long estimateNanos(State startState) {
+        return estimateRemainingNanos(startState, new ArrayList<State>());
+    }
+
+    /**
+     * Returns the expected time from the given state to the end of the route, along the
+     * longest of its next state and branches. pathStates are the states already counted
+     * on the way to this one.
+     */
+    private long estimateRemainingNanos(State state, List<State> pathStates) {
+        // A route ends at a state with no next state, or one which never leaves
+        // (the next state is itself, or one which has already been counted)
+        if (state == null || containsState(pathStates, state)) {
+            return 0;
+        }
+
+        pathStates.add(state);
+        long remainingNanos = estimateRemainingNanos(state.nextState, pathStates);
+
+        for (State branchState : state.getBranchStates()) {
+            remainingNanos = Math.max(remainingNanos, estimateRemainingNanos(branchState, pathStates));
+        }
+
+        pathStates.remove(pathStates.size() - 1);
+
+        return saturatedAdd(estimateStateNanos(state), remainingNanos);
+    }
+
+    long estimateStateNanos(State state) {
+        long loopPeriodNanos = motionModel.getLoopPeriodNanos();
+
+        if (state instanceof NestedEstimatedDuration) {
+            // made up of other states, estimated with this estimator
+            return Math.max(loopPeriodNanos, ((NestedEstimatedDuration) state).estimateDurationNanos(this));
+        }
+
+        if (state instanceof EstimatedDuration) {
+            // even an instant state takes a loop
+            return Math.max(loopPeriodNanos, ((EstimatedDuration) state).estimateDurationNanos(motionModel));
+        }
+
+        return loopPeriodNanos;
+    }
+
+    private static boolean containsState(List<State> states, State state) {
+        for (int i = 0; i < states.size(); i++) {
+            if (states.get(i) == state) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static long saturatedAdd(long a, long b) {
+        long sum = a + b;
+
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+}
@@ -0,0 +1,130 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One step (line) of a route from a RouteDescription - a command, positional arguments
+ * and optional name=value options, for example "drive 20 timeout=15000"
+ */
+public class RouteStep {
+    private final String command;
+
+    private final List<String> arguments;
+
+    private final Map<String, String> options;
+
+    private final int lineNumber;
+
+    private final String text;
+
+    RouteStep(String command, List<String> arguments, Map<String, String> options, int lineNumber, String text) {
+        this.command = command;
+        this.arguments = Collections.unmodifiableList(arguments);
+        this.options = Collections.unmodifiableMap(options);
+        this.lineNumber = lineNumber;
+        this.text = text;
+    }
+
+    public String getCommand() {
+        return command;
+    }
+
+    public int getArgumentCount() {
+        return arguments.size();
+    }
+
+    public String getArgument(int index) {
+        if (index >= arguments.size()) {
+            throw invalid("missing argument " + (index + 1));
+        }
+
+        return arguments.get(index);
+    }
+
+    /**
+     * Returns all of the arguments from the given one onwards, separated by a space,
+     * for free text such as a state name
+     */
+    public String getArgumentsFrom(int index) {
+        StringBuilder joined = new StringBuilder(getArgument(index));
+
+        for (int i = index + 1; i < arguments.size(); i++) {
+            joined.append(' ').append(arguments.get(i));
+        }
+
+        return joined.toString();
+    }
+
+    public double getDoubleArgument(int index) {
+        return parseDouble(getArgument(index));
+    }
+
+    public long getLongOption(String name, long defaultValue) {
+        String value = options.get(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException nfe) {
+            throw invalid("'" + value + "' is not a whole number");
+        }
+    }
+
+    public double getDoubleOption(String name, double defaultValue) {
+        String value = options.get(name);
+
+        if (value == null) {
+            return defaultValue;
+        }
+
+        return parseDouble(value);
+    }
+
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns an exception, to be thrown by the caller, describing a problem with this step
+     */
+    public IllegalArgumentException invalid(String problem) {
+        return new IllegalArgumentException("Route line " + lineNumber + " '" + text + "': " + problem);
+    }
+
+    private double parseDouble(String value) {
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException nfe) {
+            throw invalid("'" + value + "' is not a number");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -30,11 +30,26 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
  * Base class for all state machine states
  */
 public abstract class State {
+    private static final State[] NO_BRANCH_STATES = new State[0];
+
     protected State nextState;
     protected final Telemetry telemetry;
 
     protected final String name;
 
+    protected Clock clock = Clock.SYSTEM;
+
+    /** Set by the StateMachine running this state, use getTimerWheel() */
+    protected TimerWheel timerWheel;
+
+    /** True when this state is not run by a StateMachine, and keeps its own timer wheel */
+    private boolean ownsTimerWheel = false;
+
+    private int transitionReason = TransitionJournal.REASON_NONE;
+
+    /** Set by the StateMachine running this state when it has a budget, see debugMsg() */
+    CycleBudget cycleBudget;
+
     protected State(String name, Telemetry telemetry) {
         this.telemetry = telemetry;
         this.name = name;
@@ -52,13 +67,100 @@ public abstract class State {
 
     public abstract void resetToStart();
 
+    /**
+     * Returns the states, other than its next state, that this state may move to. States
+     * that choose between branches override this so that StateMachine.compile() knows
+     * about every branch.
+     */
+    protected State[] getBranchStates() {
+        return NO_BRANCH_STATES;
+    }
+
+    /**
+     * Sets the clock used by this state for anything time-based, when it is not run by
+     * a StateMachine (which uses setTimerWheel() instead). States that contain other states
+     * must pass the clock along to them.
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock can not be null");
+        }
+
+        this.clock = clock;
+
+        if (ownsTimerWheel) {
+            // re-created on the new clock when next needed
+            timerWheel = null;
+            ownsTimerWheel = false;
+        }
+    }
+
+    /**
+     * Sets the timer wheel used by this state for delays and timeouts, which also becomes
+     * its clock. The StateMachine calls this for every state it runs, states that contain
+     * other states must pass the timer wheel along to them.
+     */
+    public void setTimerWheel(TimerWheel timerWheel) {
+        if (timerWheel == null) {
+            throw new IllegalArgumentException("Timer wheel can not be null");
+        }
+
+        this.timerWheel = timerWheel;
+        this.clock = timerWheel;
+        ownsTimerWheel = false;
+    }
+
+    /**
+     * Returns the timer wheel for this state's delays and timeouts. States which are run
+     * directly, rather than by a StateMachine, get a timer wheel of their own which is
+     * brought up to date each time this is called.
+     */
+    protected TimerWheel getTimerWheel() {
+        if (timerWheel == null) {
+            timerWheel = new TimerWheel(clock);
+            ownsTimerWheel = true;
+        }
+
+        if (ownsTimerWheel) {
+            timerWheel.advance();
+        }
+
+        return timerWheel;
+    }
+
+    /**
+     * Records why this state is moving on to another state, one of TransitionJournal's
+     * REASON_ constants, for the state machine's journal
+     */
+    protected void setTransitionReason(int reason) {
+        transitionReason = reason;
+    }
+
+    /**
+     * Returns the reason set with setTransitionReason(), and clears it
+     */
+    int takeTransitionReason() {
+        int reason = transitionReason;
+        transitionReason = TransitionJournal.REASON_NONE;
+
+        return reason;
+    }
+
     public abstract void liveConfigure(DebouncedGamepadButtons buttons);
 
     public String getName() {
         return name;
     }
 
+    /**
+     * Shows and logs the given message, unless the state machine's cycle budget says
+     * there's no time left in this loop for diagnostics
+     */
     protected void debugMsg(String message) {
+        if (cycleBudget != null && !cycleBudget.hasTimeForDiagnostics()) {
+            return;
+        }
+
         telemetry.addData("01-State", message);
         Log.d("TNT State", message);
     }
@@ -0,0 +1,102 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-capacity stack of executed state indices, used by the StateMachine to
+ * support "go back" while debugging. When full, the oldest entries are overwritten
+ * so that pushing never allocates. Each entry also has room for a memento of the state
+ * (see Rewindable).
+ */
+class StateHistory {
+    private final int[] indices;
+
+    private final long[][] mementos;
+
+    private int top = 0; // next slot to be written
+
+    private int size = 0;
+
+    StateHistory(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("History capacity must be at least 1");
+        }
+
+        indices = new int[capacity];
+        mementos = new long[capacity][0];
+    }
+
+    /**
+     * Makes every entry's memento hold at least the given number of values
+     */
+    void ensureMementoSize(int mementoSize) {
+        for (int i = 0; i < mementos.length; i++) {
+            if (mementos[i].length < mementoSize) {
+                mementos[i] = Arrays.copyOf(mementos[i], mementoSize);
+            }
+        }
+    }
+
+    /**
+     * Returns the memento of the most recently pushed entry
+     */
+    long[] peekMemento() {
+        if (size == 0) {
+            throw new IllegalStateException("State history is empty");
+        }
+
+        return mementos[(top - 1 + indices.length) % indices.length];
+    }
+
+    void push(int stateIndex) {
+        indices[top] = stateIndex;
+        top = (top + 1) % indices.length;
+
+        if (size < indices.length) {
+            size++;
+        }
+    }
+
+    int pop() {
+        if (size == 0) {
+            throw new IllegalStateException("State history is empty");
+        }
+
+        top = (top - 1 + indices.length) % indices.length;
+        size--;
+
+        return indices[top];
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        top = 0;
+        size = 0;
+    }
+}
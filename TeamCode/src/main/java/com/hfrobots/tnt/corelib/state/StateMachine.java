@@ -27,26 +27,52 @@ import com.hfrobots.tnt.corelib.control.NinjaGamePad;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
-import java.util.HashSet;
-import java.util.Set;
-import java.util.Stack;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public class StateMachine {
+    private static final int DEFAULT_HISTORY_CAPACITY = 64;
 
-    private Stack<State> executedStates;
+    private static final int NO_STATE = -1;
 
-    private Set<State> allStates;
+    /** History of executed states, as indices into allStates */
+    private final StateHistory executedStates;
+
+    /** All known states, a state's position in this list is its index */
+    private final List<State> allStates;
 
     private State currentState = null;
 
+    private int currentStateIndex = NO_STATE;
+
     private State firstState;
 
+    private int firstStateIndex = NO_STATE;
+
+    /** The state graph as an array, indexed the same as allStates, only set once compile()d */
+    private State[] compiledStates;
+
+    /** For each compiled state, the index of its next state, or NO_STATE */
+    private int[] nextStateIndices;
+
     private State lastSequentialState;
 
     private boolean areWeDebugging = false;
 
     private boolean isStateMachinePaused = false;
 
+    private boolean isFinished = false;
+
+    /** Whether the current state has started running, and its memento (if any) has been saved */
+    private boolean currentStateStarted = false;
+
     private DebouncedButton goButton;
 
     private DebouncedButton goBackButton;
@@ -57,17 +83,528 @@ public class StateMachine {
 
     private Telemetry telemetry;
 
+    /**
+     * The "00" telemetry line, only re-built when something it displays has changed
+     * so that we don't allocate during every loop
+     */
+    private String statusLine;
+
+    /** Only set when profiling has been enabled */
+    private StateProfiler profiler;
+
+    /** Only set when the journal has been enabled */
+    private TransitionJournal journal;
+
+    private long loopCount = 0;
+
+    private LoopWatchdog watchdog;
+
+    private CycleBudget cycleBudget;
+
+    /** Set when the watchdog has stopped the robot, states are not run until it recovers */
+    private boolean isSafeStopped = false;
+
+    private int safeStopRecoveryLoops = DEFAULT_SAFE_STOP_RECOVERY_LOOPS;
+
+    private int loopsWithinBudgetWhileStopped = 0;
+
+    /**
+     * Given to every state this state machine runs, for their delays and timeouts
+     * and as their clock
+     */
+    private TimerWheel timerWheel = new TimerWheel(Clock.SYSTEM);
+
+    /** False when nested in another state machine, which advances the timer wheel */
+    private boolean ownsTimerWheel = true;
+
+    private static final long NO_DEADLINE = -1;
+
+    /** For setLoopWatchdog(), never run states again once the watchdog has stopped the robot */
+    public static final int STAY_SAFE_STOPPED = 0;
+
+    /** How many loops within budget setLoopWatchdog() waits, by default, before running states again */
+    public static final int DEFAULT_SAFE_STOP_RECOVERY_LOOPS = 10;
+
+    private long deadlineNanos = NO_DEADLINE;
+
+    /** Time spent running (not paused in the debugger) that counts towards the deadline */
+    private long elapsedTowardsDeadlineNanos = 0;
+
+    private long lastDeadlineLoopNanos;
+
+    private boolean deadlineStarted = false;
+
     public void addNewState(State newState) {
         Log.d("VV", "addNewState(" + newState + ")");
-        allStates.add(newState);
+        checkNotCompiled();
+        registerState(newState);
+    }
+
+    /**
+     * Returns the index for the given state, adding it to the set of known states
+     * if it is not yet there.
+     */
+    private int registerState(State state) {
+        int index = indexOf(state);
+
+        if (index == -1) {
+            prepareState(state);
+            allStates.add(state);
+            index = allStates.size() - 1;
+        }
+
+        return index;
+    }
+
+    private void prepareState(State state) {
+        state.setTimerWheel(timerWheel);
+        state.cycleBudget = cycleBudget;
+
+        if (state instanceof Rewindable) {
+            executedStates.ensureMementoSize(((Rewindable) state).getMementoSize());
+        }
+    }
+
+    private int indexOf(State state) {
+        for (int i = 0; i < allStates.size(); i++) {
+            if (allStates.get(i) == state) {
+                return i;
+            }
+        }
+
+        return NO_STATE;
+    }
+
+    private State stateAt(int index) {
+        if (compiledStates != null) {
+            return compiledStates[index];
+        }
+
+        return allStates.get(index);
+    }
+
+    /**
+     * Returns the index of the state that the current state transitioned to
+     */
+    private int indexOfNextState(State possibleNextState) {
+        if (possibleNextState == null) {
+            throw new IllegalStateException("State '" + currentState.getName() + "' did not return a next state");
+        }
+
+        if (compiledStates == null) {
+            return registerState(possibleNextState);
+        }
+
+        int nextStateIndex = nextStateIndices[currentStateIndex];
+
+        if (nextStateIndex != NO_STATE && compiledStates[nextStateIndex] == possibleNextState) {
+            return nextStateIndex;
+        }
+
+        // A state is allowed to pick some other state than its next state
+        for (int i = 0; i < compiledStates.length; i++) {
+            if (compiledStates[i] == possibleNextState) {
+                return i;
+            }
+        }
+
+        // Most likely a state which doesn't list one of its targets in getBranchStates(), carry
+        // on rather than stopping the robot part way through a match
+        Log.e(LOG_TAG, "State '" + currentState.getName() + "' returned state '"
+                + possibleNextState.getName() + "' which compile() did not find, add it to getBranchStates()");
+
+        return addCompiledState(possibleNextState);
+    }
+
+    /**
+     * Adds a state that was not found by compile() to the compiled state graph
+     */
+    private int addCompiledState(State state) {
+        prepareState(state);
+        allStates.add(state);
+
+        int index = compiledStates.length;
+        compiledStates = Arrays.copyOf(compiledStates, index + 1);
+        compiledStates[index] = state;
+        nextStateIndices = Arrays.copyOf(nextStateIndices, index + 1);
+        nextStateIndices[index] = indexOf(state.nextState);
+
+        return index;
+    }
+
+    private void checkNotCompiled() {
+        if (compiledStates != null) {
+            throw new IllegalStateException("State machine has already been compiled");
+        }
+    }
+
+    public boolean isCompiled() {
+        return compiledStates != null;
+    }
+
+    /**
+     * Freezes the state graph once all states have been added. Assigns every state a dense
+     * index and builds an array-based transition table so that stepping to the next state,
+     * go back and do over do not need to search or hash. States that are only reachable through
+     * another state's next state (or branches), rather than being added, are added for you.
+     *
+     * Call this after the state machine has been built and before the first doOneStateLoop().
+     * States may no longer be added once compiled.
+     *
+     * @throws IllegalStateException if there is no first state, if any state has no next state
+     * (except for the last state added with addSequential(); states that never leave should
+     * use themselves as the next state), or if any added state can not be reached from the
+     * first state
+     *
+     * States which can move to some state other than their next state must return those
+     * states from getBranchStates(). If one doesn't, the state it moves to is added to the
+     * compiled graph when it is first moved to (and an error is logged) rather than failing.
+     */
+    public void compile() {
+        checkNotCompiled();
+
+        if (currentState == null) {
+            throw new IllegalStateException("State machine has no first state");
+        }
+
+        List<State> reachableStates = new ArrayList<>();
+        reachableStates.add(currentState);
+
+        if (firstState != currentState) {
+            reachableStates.add(firstState); // start delay, do over goes to the original first state
+        }
+
+        StringBuilder problems = new StringBuilder();
+
+        for (int i = 0; i < reachableStates.size(); i++) {
+            State state = reachableStates.get(i);
+
+            if (state.nextState == null) {
+                if (state != lastSequentialState) {
+                    appendProblem(problems, "state '" + state.getName() + "' has no next state");
+                }
+            } else if (!containsState(reachableStates, state.nextState)) {
+                reachableStates.add(state.nextState);
+            }
+
+            for (State branchState : state.getBranchStates()) {
+                if (!containsState(reachableStates, branchState)) {
+                    reachableStates.add(branchState);
+                }
+            }
+        }
+
+        for (int i = 0; i < allStates.size(); i++) {
+            State state = allStates.get(i);
+
+            if (!containsState(reachableStates, state)) {
+                appendProblem(problems, "state '" + state.getName() + "' can not be reached from the first state");
+            }
+        }
+
+        if (problems.length() != 0) {
+            throw new IllegalStateException("Invalid state machine - " + problems);
+        }
+
+        allStates.clear();
+        allStates.addAll(reachableStates);
+
+        compiledStates = reachableStates.toArray(new State[reachableStates.size()]);
+        nextStateIndices = new int[compiledStates.length];
+
+        for (int i = 0; i < compiledStates.length; i++) {
+            // states that were found by following next states have not been prepared yet
+            prepareState(compiledStates[i]);
+            nextStateIndices[i] = indexOf(compiledStates[i].nextState);
+        }
+
+        currentStateIndex = indexOf(currentState);
+        firstStateIndex = indexOf(firstState);
+        executedStates.clear();
+        executedStates.push(currentStateIndex);
+
+        if (profiler != null) {
+            profiler.ensureCapacity(compiledStates.length);
+        }
+
+        Log.d("VV", "compile() - " + compiledStates.length + " states");
+    }
+
+    private static boolean containsState(List<State> states, State state) {
+        for (int i = 0; i < states.size(); i++) {
+            if (states.get(i) == state) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void appendProblem(StringBuilder problems, String problem) {
+        if (problems.length() != 0) {
+            problems.append(", ");
+        }
+
+        problems.append(problem);
+    }
+
+    /**
+     * Sets the clock used by every state in this state machine (including those added
+     * later), for example a ManualClock to run an autonomous faster than real time.
+     * The profiler always measures real time.
+     *
+     * Any timers the states have running are lost, so call this before running the
+     * state machine.
+     */
+    public void setClock(Clock clock) {
+        if (clock == null) {
+            throw new IllegalArgumentException("Clock can not be null");
+        }
+
+        useTimerWheel(new TimerWheel(clock), true);
+    }
+
+    /**
+     * Used when this state machine is nested in another one, so that all states
+     * share the outer state machine's timer wheel.
+     */
+    void shareTimerWheel(TimerWheel timerWheel) {
+        useTimerWheel(timerWheel, false);
+    }
+
+    private void useTimerWheel(TimerWheel timerWheel, boolean ownsTimerWheel) {
+        this.timerWheel = timerWheel;
+        this.ownsTimerWheel = ownsTimerWheel;
+
+        for (int i = 0; i < allStates.size(); i++) {
+            allStates.get(i).setTimerWheel(timerWheel);
+        }
+    }
+
+    /**
+     * Sets how long this state machine has to finish in, for example the length of the
+     * autonomous period. The time starts with the first doOneStateLoop() (so it includes
+     * any start delay), and does not count while paused by the debugger. States can ask
+     * how much time is left with getRemainingNanos() - see DeadlineChoiceState.
+     */
+    public void setDeadline(long duration, TimeUnit unit) {
+        if (duration < 0) {
+            throw new IllegalArgumentException("Deadline can not be negative");
+        }
+
+        deadlineNanos = unit.toNanos(duration);
+    }
+
+    /**
+     * Returns the time, in nanoseconds, left before the deadline (negative once it has
+     * passed), or Long.MAX_VALUE if there is no deadline
+     */
+    public long getRemainingNanos() {
+        if (deadlineNanos == NO_DEADLINE) {
+            return Long.MAX_VALUE;
+        }
+
+        return deadlineNanos - elapsedTowardsDeadlineNanos;
+    }
+
+    private void updateDeadline() {
+        long nowNanos = timerWheel.nanoTime();
+
+        if (deadlineStarted && !isStateMachinePaused) {
+            elapsedTowardsDeadlineNanos += nowNanos - lastDeadlineLoopNanos;
+        }
+
+        lastDeadlineLoopNanos = nowNanos;
+        deadlineStarted = true;
+    }
+
+    /**
+     * Starts recording, for each state, how many loops were spent in it and how long
+     * each of those loops took. See logProfile().
+     */
+    public void enableProfiling() {
+        if (profiler == null) {
+            profiler = new StateProfiler();
+            profiler.ensureCapacity(allStates.size());
+        }
+    }
+
+    /**
+     * Returns the number of loops the given state has run for, or 0 if profiling is
+     * not enabled
+     */
+    public long getLoopCount(State state) {
+        if (profiler == null) {
+            return 0;
+        }
+
+        return profiler.getLoopCount(indexOf(state));
+    }
+
+    /**
+     * Returns the time in nanoseconds that the given percentage (0-100) of loops in the
+     * given state took no longer than, to a resolution of 0.25 ms, or 0 if profiling is
+     * not enabled
+     */
+    public long getPercentileLoopNanos(State state, double percentile) {
+        if (profiler == null) {
+            return 0;
+        }
+
+        return profiler.getPercentileNanos(indexOf(state), percentile);
+    }
+
+    /**
+     * Returns the longest time in nanoseconds a single loop in the given state took,
+     * or 0 if profiling is not enabled
+     */
+    public long getMaxLoopNanos(State state) {
+        if (profiler == null) {
+            return 0;
+        }
+
+        return profiler.getMaxNanos(indexOf(state));
+    }
+
+    /**
+     * Logs the loop count and 50th, 99th percentile and maximum loop times for every
+     * state that has run, call from OpMode.stop()
+     */
+    public void logProfile() {
+        if (profiler == null) {
+            return;
+        }
+
+        for (int i = 0; i < allStates.size(); i++) {
+            long loopCount = profiler.getLoopCount(i);
+
+            if (loopCount != 0) {
+                Log.d(LOG_TAG, String.format("profile state %s: loops %d, p50 %.2f ms, p99 %.2f ms, max %.2f ms",
+                        stateAt(i).getName(), loopCount,
+                        profiler.getPercentileNanos(i, 50) / 1000000.0,
+                        profiler.getPercentileNanos(i, 99) / 1000000.0,
+                        profiler.getMaxNanos(i) / 1000000.0));
+            }
+        }
+    }
+
+    /**
+     * Starts recording every transition (see TransitionJournal) in place of logging them,
+     * as logging allocates. Call writeJournal() from OpMode.stop() to save them.
+     */
+    public void enableJournal() {
+        enableJournal(TransitionJournal.DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Starts recording at most the given number of (the most recent) transitions
+     */
+    public void enableJournal(int capacity) {
+        if (journal == null) {
+            journal = new TransitionJournal(capacity);
+        }
+    }
+
+    /**
+     * Writes the journal, if enabled, to the given stream (see TransitionJournalReader)
+     */
+    public void writeJournal(OutputStream out) throws IOException {
+        if (journal == null) {
+            return;
+        }
+
+        String[] stateNames = new String[allStates.size()];
+
+        for (int i = 0; i < stateNames.length; i++) {
+            stateNames[i] = stateAt(i).getName();
+        }
+
+        journal.write(out, stateNames);
+    }
+
+    /**
+     * Writes the journal, if enabled, to the given file - creating its folder if needed.
+     * Problems are logged rather than thrown, so this is safe to call from OpMode.stop()
+     */
+    public void writeJournal(File file) {
+        if (journal == null) {
+            return;
+        }
+
+        File folder = file.getParentFile();
+
+        if (folder != null && !folder.exists() && !folder.mkdirs()) {
+            Log.e(LOG_TAG, "Could not create folder for state machine journal " + file);
+
+            return;
+        }
+
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            writeJournal(out);
+            Log.i(LOG_TAG, "Wrote " + journal.size() + " state transitions to " + file);
+        } catch (IOException ioe) {
+            Log.e(LOG_TAG, "Could not write state machine journal to " + file, ioe);
+        }
+    }
+
+    private void recordTransition(int fromStateIndex, int toStateIndex, int reason) {
+        if (journal != null) {
+            journal.record(timerWheel.nanoTime(), fromStateIndex, toStateIndex, loopCount, reason);
+        }
+    }
+
+    /**
+     * Times every loop with the given watchdog. When the watchdog stops the robot, this
+     * state machine stops running states until DEFAULT_SAFE_STOP_RECOVERY_LOOPS loops in a
+     * row have been within budget, then carries on with the current state.
+     */
+    public void setLoopWatchdog(LoopWatchdog watchdog) {
+        setLoopWatchdog(watchdog, DEFAULT_SAFE_STOP_RECOVERY_LOOPS);
+    }
+
+    /**
+     * Times every loop with the given watchdog. When the watchdog stops the robot, this
+     * state machine stops running states until recoveryLoops loops in a row have been
+     * within budget - or, with STAY_SAFE_STOPPED, until resetToStart(). States are not run
+     * while stopped, so those loops are a cool-down; if the current state is still slow
+     * once it runs again, the watchdog stops the robot again.
+     */
+    public void setLoopWatchdog(LoopWatchdog watchdog, int recoveryLoops) {
+        if (recoveryLoops < 0) {
+            throw new IllegalArgumentException("Recovery loops can not be negative");
+        }
+
+        this.watchdog = watchdog;
+        this.safeStopRecoveryLoops = recoveryLoops;
+    }
+
+    /**
+     * Skips the status telemetry, and the states' debugMsg(), in loops that have used up
+     * the given budget. The OpMode starts each cycle, before running this state machine.
+     */
+    public void setCycleBudget(CycleBudget cycleBudget) {
+        this.cycleBudget = cycleBudget;
+
+        for (int i = 0; i < allStates.size(); i++) {
+            stateAt(i).cycleBudget = cycleBudget;
+        }
+    }
+
+    /**
+     * Returns true when the loop watchdog has stopped this state machine
+     */
+    public boolean isSafeStopped() {
+        return isSafeStopped;
     }
 
     public void startDebugging() {
         areWeDebugging = true;
+        statusLine = null;
     }
 
     public void stopDebugging() {
         areWeDebugging = false;
+        statusLine = null;
     }
 
     public void setGoButton(DebouncedButton goButton) {
@@ -90,10 +627,95 @@ public class StateMachine {
         return currentState.getName();
     }
 
+    State getCurrentState() {
+        return currentState;
+    }
+
+    /** The state resetToStart() goes to */
+    State getFirstState() {
+        return firstState;
+    }
+
+    /**
+     * Returns true once the last state added with addSequential() has no next state
+     * to go to. A finished state machine stays in that state until resetToStart().
+     */
+    public boolean isFinished() {
+        return isFinished;
+    }
+
+    /**
+     * Resets all states and goes back to the first state
+     */
+    public void resetToStart() {
+        for (int i = 0; i < allStates.size(); i++) {
+            stateAt(i).resetToStart();
+        }
+
+        executedStates.clear();
+
+        executedStates.push(firstStateIndex);
+        currentState = firstState;
+        currentStateIndex = firstStateIndex;
+        currentStateStarted = false;
+        isFinished = false;
+        statusLine = null;
+        elapsedTowardsDeadlineNanos = 0;
+        deadlineStarted = false;
+        isSafeStopped = false;
+        loopsWithinBudgetWhileStopped = 0;
+
+        if (watchdog != null) {
+            watchdog.reset();
+        }
+    }
+
+    private void updateSafeStop(State loopState) {
+        if (watchdog.loopEnded(loopState.getName())) {
+            loopsWithinBudgetWhileStopped = 0;
+
+            if (!isSafeStopped) {
+                isSafeStopped = true;
+                statusLine = null;
+                Log.e(LOG_TAG, "state machine safe-stopped by loop watchdog in state " + loopState.getName());
+            }
+        } else if (isSafeStopped && safeStopRecoveryLoops != STAY_SAFE_STOPPED) {
+            if (!watchdog.isLastLoopWithinBudget()) {
+                loopsWithinBudgetWhileStopped = 0;
+            } else if (++loopsWithinBudgetWhileStopped >= safeStopRecoveryLoops) {
+                isSafeStopped = false;
+                loopsWithinBudgetWhileStopped = 0;
+                statusLine = null;
+                Log.d(LOG_TAG, "state machine recovered from safe-stop in state " + currentState.getName());
+            }
+        }
+    }
+
+    private void saveMemento() {
+        if (currentState instanceof Rewindable) {
+            ((Rewindable) currentState).saveMemento(executedStates.peekMemento());
+        }
+    }
+
+    /**
+     * Lets the current state be configured from the given buttons
+     */
+    public void liveConfigure(DebouncedGamepadButtons buttons) {
+        currentState.liveConfigure(buttons);
+    }
+
     public StateMachine(Telemetry telemetry) {
+        this(telemetry, DEFAULT_HISTORY_CAPACITY);
+    }
+
+    /**
+     * Creates a state machine that remembers at most historyCapacity executed states
+     * for the debugger's "go back" button
+     */
+    public StateMachine(Telemetry telemetry, int historyCapacity) {
         this.telemetry = telemetry;
-        executedStates = new Stack<>();
-        allStates = new HashSet<>();
+        executedStates = new StateHistory(historyCapacity);
+        allStates = new ArrayList<>();
     }
 
     /**
@@ -132,65 +754,149 @@ public class StateMachine {
             throw new IllegalArgumentException("State machine already has the first state set");
         }
 
-        executedStates.push(state);
         addNewState(state);
+        currentStateIndex = indexOf(state);
+        executedStates.push(currentStateIndex);
         currentState = state;
         firstState = state;
+        firstStateIndex = currentStateIndex;
+        statusLine = null;
     }
 
     public void addStartDelay(long numberOfSeconds) {
-        State originalFirstState = executedStates.pop();
+        checkNotCompiled();
+        State originalFirstState = allStates.get(executedStates.pop());
         DelayState startDelay = new DelayState("Delayed start", telemetry, numberOfSeconds);
-        executedStates.push(startDelay);
         startDelay.setNextState(originalFirstState);
+        currentStateIndex = registerState(startDelay);
+        executedStates.push(currentStateIndex);
         currentState = startDelay;
+        statusLine = null;
     }
 
     public void doOneStateLoop() {
         try {
-            if (!isStateMachinePaused) {
+            if (ownsTimerWheel) {
+                timerWheel.advance();
+            }
+
+            if (deadlineNanos != NO_DEADLINE) {
+                updateDeadline();
+            }
+
+            loopCount++;
+
+            if (watchdog != null) {
+                watchdog.loopStarted();
+            }
+
+            // the state that runs this loop, which is the one to blame if it is too slow
+            State loopState = currentState;
+
+            if (isSafeStopped) {
+                // the watchdog has already stopped the robot, don't let any state drive it again
+            } else if (!isStateMachinePaused && !isFinished) {
+                if (!currentStateStarted) {
+                    saveMemento();
+                    currentState.takeTransitionReason(); // from the last time it ran
+                    currentStateStarted = true;
+                }
+
+                long startNanos = profiler != null ? System.nanoTime() : 0;
+
                 State possibleNextState = currentState.doStuffAndGetNextState();
 
-                if (!possibleNextState.equals(currentState)) {
+                if (profiler != null) {
+                    profiler.record(currentStateIndex, System.nanoTime() - startNanos);
+                }
+
+                if (possibleNextState == null && currentState == lastSequentialState) {
+                    if (journal != null) {
+                        recordTransition(currentStateIndex, TransitionJournal.FINISHED, currentState.takeTransitionReason());
+                    } else {
+                        Log.d(LOG_TAG, "state machine finished in state " + currentState.getName());
+                    }
+
+                    isFinished = true;
+                } else if (possibleNextState != currentState) {
+                    int nextStateIndex = indexOfNextState(possibleNextState);
+
                     // We've changed states, Yay time to party
-                    Log.d(LOG_TAG, "state " + currentState.getName() + " -> " + possibleNextState);
-                    executedStates.push(possibleNextState);
+                    if (journal != null) {
+                        recordTransition(currentStateIndex, nextStateIndex, currentState.takeTransitionReason());
+                    } else {
+                        Log.d(LOG_TAG, "state " + currentState.getName() + " -> " + possibleNextState.getName());
+                    }
+
+                    executedStates.push(nextStateIndex);
                     currentState = possibleNextState;
+                    currentStateIndex = nextStateIndex;
+                    currentStateStarted = false;
+                    statusLine = null;
 
                     if (areWeDebugging) {
                         isStateMachinePaused = true;
                     }
                 }
-            } else {
+            } else if (isStateMachinePaused) {
                 // we're paused, allowing live configuring and waiting for go or go back signals
-                currentState.liveConfigure(allGamePadButtons);
+                liveConfigure(allGamePadButtons);
 
                 // check for un-pausing
                 if (goButton.getRise()) {
                     isStateMachinePaused = false;
+                    statusLine = null;
                 } else if (goBackButton.getRise()) {
                     // we were paused - and haven't run the current step yet
-                    currentState = executedStates.pop();
-                    if (!executedStates.empty()) {
-                        currentState = executedStates.pop(); // this is the one we really want
+                    int fromStateIndex = currentStateIndex;
+                    boolean wentBack = false;
+
+                    if (!executedStates.isEmpty()) {
+                        currentStateIndex = executedStates.pop();
                     }
-                    currentState.resetToStart();
-                    isStateMachinePaused = true;
-                } else if (doOverButton.getRise()) {
-                    // reset all the states, set current to ??? and pause the state machine
-                    for (State resetThisState : allStates) {
-                        resetThisState.resetToStart();
+
+                    if (!executedStates.isEmpty()) {
+                        currentStateIndex = executedStates.pop(); // this is the one we really want
+                        wentBack = true;
                     }
 
-                    executedStates.clear();
+                    currentState = stateAt(currentStateIndex);
+
+                    // goes back into the same entry, which still has the state's memento
+                    executedStates.push(currentStateIndex);
+
+                    if (wentBack && currentState instanceof Rewindable) {
+                        ((Rewindable) currentState).restoreMemento(executedStates.peekMemento());
+                    } else {
+                        currentState.resetToStart();
+                    }
 
-                    executedStates.push(firstState);
-                    currentState = firstState;
+                    currentStateStarted = false;
+                    isFinished = false;
+                    isStateMachinePaused = true;
+                    statusLine = null;
+                    recordTransition(fromStateIndex, currentStateIndex, TransitionJournal.REASON_GO_BACK);
+                } else if (doOverButton.getRise()) {
+                    // reset all the states, set current to ??? and pause the state machine
+                    recordTransition(currentStateIndex, firstStateIndex, TransitionJournal.REASON_DO_OVER);
+                    resetToStart();
                     isStateMachinePaused = true;
                 }
             }
-            telemetry.addData("00", String.format("%s%s state %s", areWeDebugging ? "[DEBUG]" : "",
-                    isStateMachinePaused ? "||" : ">", currentState.getName()));
+
+            if (watchdog != null) {
+                updateSafeStop(loopState);
+            }
+
+            if (statusLine == null) {
+                statusLine = String.format("%s%s state %s", areWeDebugging ? "[DEBUG]" : "",
+                        isSafeStopped ? "[SAFE STOP]" : isStateMachinePaused ? "||" : ">", currentState.getName());
+            }
+
+            // the drivers need to know the robot has been stopped, even when short of time
+            if (isSafeStopped || cycleBudget == null || cycleBudget.hasTimeForDiagnostics()) {
+                telemetry.addData("00", statusLine);
+            }
         } catch (Throwable t) {
             // Better logging than the FTC SDK provides :(
             Log.e("VV", "Exception during state machine", t);
@@ -0,0 +1,105 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+/**
+ * Runs an entire (nested) state machine as a single state of another state machine,
+ * moving to the next state once the nested state machine has finished.
+ *
+ * The nested state machine keeps its own history, and resetting this state resets
+ * the nested state machine. A nested state machine can be built once and shared by
+ * several StateMachineStates (for example one per autonomous route), as long as only
+ * one of them is running at a time.
+ */
+public class StateMachineState extends State implements NestedEstimatedDuration {
+    private final StateMachine stateMachine;
+
+    private boolean running = false;
+
+    public StateMachineState(String name, Telemetry telemetry, StateMachine stateMachine) {
+        super(name, telemetry);
+        this.stateMachine = stateMachine;
+    }
+
+    @Override
+    public State doStuffAndGetNextState() {
+        if (!running) {
+            // (re-)entering this state, start the nested state machine from the top
+            // if it was run before
+            if (stateMachine.isFinished()) {
+                stateMachine.resetToStart();
+            }
+
+            running = true;
+        }
+
+        stateMachine.doOneStateLoop();
+
+        if (stateMachine.isFinished()) {
+            running = false;
+
+            return nextState;
+        }
+
+        return this;
+    }
+
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return estimateDurationNanos(new RouteDurationEstimator(motionModel));
+    }
+
+    @Override
+    public long estimateDurationNanos(RouteDurationEstimator estimator) {
+        // the nested state machine starts from the top each time this state is entered
+        return estimator.estimateNanos(stateMachine.getFirstState());
+    }
+
+    @Override
+    public void resetToStart() {
+        running = false;
+        stateMachine.resetToStart();
+    }
+
+    @Override
+    public void setClock(Clock clock) {
+        super.setClock(clock);
+        stateMachine.setClock(clock);
+    }
+
+    @Override
+    public void setTimerWheel(TimerWheel timerWheel) {
+        super.setTimerWheel(timerWheel);
+        stateMachine.shareTimerWheel(timerWheel);
+    }
+
+    @Override
+    public void liveConfigure(DebouncedGamepadButtons buttons) {
+        stateMachine.liveConfigure(buttons);
+    }
+
+    public StateMachine getStateMachine() {
+        return stateMachine;
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps, for each state (by index), a histogram of how long each call to
+ * State.doStuffAndGetNextState() took. Buckets are fixed width, and storage only
+ * grows when a state is seen for the first time, so recording does not allocate.
+ */
+class StateProfiler {
+    static final long BUCKET_WIDTH_NANOS = TimeUnit.MICROSECONDS.toNanos(250);
+
+    // 0 - 50 ms, anything slower is counted in the last bucket
+    static final int NUM_BUCKETS = 200;
+
+    private int[][] histograms = new int[0][];
+
+    private long[] loopCounts = new long[0];
+
+    private long[] maxNanos = new long[0];
+
+    void ensureCapacity(int numStates) {
+        if (numStates <= histograms.length) {
+            return;
+        }
+
+        int oldNumStates = histograms.length;
+        histograms = Arrays.copyOf(histograms, numStates);
+        loopCounts = Arrays.copyOf(loopCounts, numStates);
+        maxNanos = Arrays.copyOf(maxNanos, numStates);
+
+        for (int i = oldNumStates; i < numStates; i++) {
+            histograms[i] = new int[NUM_BUCKETS];
+        }
+    }
+
+    void record(int stateIndex, long elapsedNanos) {
+        if (stateIndex >= histograms.length) {
+            ensureCapacity(Math.max(stateIndex + 1, histograms.length * 2));
+        }
+
+        int bucket = (int) Math.min(elapsedNanos / BUCKET_WIDTH_NANOS, NUM_BUCKETS - 1);
+        histograms[stateIndex][bucket]++;
+        loopCounts[stateIndex]++;
+
+        if (elapsedNanos > maxNanos[stateIndex]) {
+            maxNanos[stateIndex] = elapsedNanos;
+        }
+    }
+
+    long getLoopCount(int stateIndex) {
+        if (stateIndex < 0 || stateIndex >= loopCounts.length) {
+            return 0;
+        }
+
+        return loopCounts[stateIndex];
+    }
+
+    long getMaxNanos(int stateIndex) {
+        if (stateIndex < 0 || stateIndex >= maxNanos.length) {
+            return 0;
+        }
+
+        return maxNanos[stateIndex];
+    }
+
+    /**
+     * Returns the time (to the resolution of a bucket) which the given percentage (0-100)
+     * of loops in the given state took no longer than, or 0 if the state never ran.
+     */
+    long getPercentileNanos(int stateIndex, double percentile) {
+        long loopCount = getLoopCount(stateIndex);
+
+        if (loopCount == 0) {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * loopCount));
+        int[] histogram = histograms[stateIndex];
+        long seen = 0;
+        int bucket;
+
+        for (bucket = 0; bucket < NUM_BUCKETS - 1; bucket++) {
+            seen += histogram[bucket];
+
+            if (seen >= rank) {
+                break;
+            }
+        }
+
+        if (bucket == NUM_BUCKETS - 1) {
+            // the last bucket has no upper edge
+            return maxNanos[stateIndex];
+        }
+
+        // upper edge of the bucket, but never more than we've actually seen
+        return Math.min((bucket + 1) * BUCKET_WIDTH_NANOS, maxNanos[stateIndex]);
+    }
+}
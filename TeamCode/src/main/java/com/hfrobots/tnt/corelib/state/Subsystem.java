@@ -0,0 +1,58 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+/**
+ * A part of the robot - drive, lift, shooter, collector - that only one Command may use
+ * at a time. Commands say which subsystems they require, and the CommandScheduler makes
+ * sure no two running commands write to the same hardware.
+ */
+public class Subsystem {
+    private final String name;
+
+    /** The running command using this subsystem, maintained by the CommandScheduler */
+    Command currentCommand;
+
+    /** Run by the CommandScheduler whenever no other command is using this subsystem */
+    Command defaultCommand;
+
+    public Subsystem(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the command using this subsystem, or null if it is free
+     */
+    public Command getCurrentCommand() {
+        return currentCommand;
+    }
+
+    /**
+     * Called when a command using this subsystem is cancelled (or pre-empted by another
+     * command) before finishing, override to leave the hardware in a safe state
+     */
+    protected void stop() {
+
+    }
+}
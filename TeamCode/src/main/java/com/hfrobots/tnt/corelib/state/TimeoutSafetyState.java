@@ -21,6 +21,8 @@ package com.hfrobots.tnt.corelib.state;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
+import java.util.concurrent.TimeUnit;
+
 /**
  * Base class which can be used to build a State which has a safety timeout
  *
@@ -30,27 +32,37 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
 
 public abstract class TimeoutSafetyState extends State {
     protected final long safetyTimeoutMillis;
-    private long timeoutStartMillis;
+    private boolean timeoutStarted;
+    private long timeoutHandle;
 
     protected TimeoutSafetyState(String name, Telemetry telemetry, long safetyTimeoutMillis) {
         super(name, telemetry);
         this.safetyTimeoutMillis = safetyTimeoutMillis;
-        timeoutStartMillis = 0;
+        timeoutStarted = false;
     }
 
     protected boolean isTimedOut() {
-        if (timeoutStartMillis == 0) {
-            timeoutStartMillis = System.currentTimeMillis();
+        if (!timeoutStarted) {
+            timeoutHandle = getTimerWheel().schedule(safetyTimeoutMillis, TimeUnit.MILLISECONDS);
+            timeoutStarted = true;
 
             return false;
         }
 
+        boolean timedOut = getTimerWheel().isExpired(timeoutHandle);
+
+        if (timedOut) {
+            setTransitionReason(TransitionJournal.REASON_TIMEOUT);
+        }
 
-        return System.currentTimeMillis() - timeoutStartMillis >= safetyTimeoutMillis;
+        return timedOut;
     }
 
     @Override
     public void resetToStart() {
-        timeoutStartMillis = 0;
+        if (timeoutStarted) {
+            getTimerWheel().cancel(timeoutHandle);
+            timeoutStarted = false;
+        }
     }
 }
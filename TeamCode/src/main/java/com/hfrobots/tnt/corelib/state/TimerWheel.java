@@ -0,0 +1,281 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hashed timer wheel shared by all of the states in a StateMachine, so that delays and
+ * safety timeouts don't each keep a start time and read the clock on every loop.
+ *
+ * The state machine calls advance() once per loop, which reads the underlying clock
+ * once and marks any timers whose deadline has passed as expired. States schedule() a
+ * timer, check it with isExpired() (an array lookup) and cancel() it when they are reset.
+ * The wheel is itself a Clock which reports the time as of the last advance(), so every
+ * state sees the same time during a loop.
+ *
+ * Timer storage only grows when more timers are outstanding than ever before, so
+ * scheduling does not allocate in steady state.
+ */
+public class TimerWheel implements Clock {
+    private static final long DEFAULT_TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    // 512 ms per turn of the wheel, longer timers wait for their tick to come around again
+    private static final int DEFAULT_NUM_SLOTS = 512;
+
+    private static final int INITIAL_TIMER_CAPACITY = 16;
+
+    private static final int NONE = -1;
+
+    private final Clock source;
+
+    private final long tickNanos;
+
+    private final long originNanos;
+
+    private final int slotMask;
+
+    /** First timer in each slot, timers in a slot are a linked list through nextInSlot */
+    private final int[] slotHeads;
+
+    private long currentTick = 0;
+
+    private long nowNanos;
+
+    // Per-timer storage, indexed by the low half of a timer handle
+
+    private long[] deadlineTicks;
+
+    private int[] nextInSlot;
+
+    private int[] prevInSlot;
+
+    private int[] generations;
+
+    private boolean[] expired;
+
+    private boolean[] inUse;
+
+    private int firstFree = NONE; // free timers are a linked list through nextInSlot
+
+    private int numActive = 0;
+
+    public TimerWheel(Clock source) {
+        this(source, DEFAULT_TICK_NANOS, DEFAULT_NUM_SLOTS);
+    }
+
+    /**
+     * @param tickNanos resolution of the timers
+     * @param numSlots number of slots in the wheel, must be a power of two
+     */
+    public TimerWheel(Clock source, long tickNanos, int numSlots) {
+        if (tickNanos <= 0) {
+            throw new IllegalArgumentException("Tick must be positive");
+        }
+
+        if (numSlots <= 0 || Integer.bitCount(numSlots) != 1) {
+            throw new IllegalArgumentException("Number of slots must be a power of two");
+        }
+
+        this.source = source;
+        this.tickNanos = tickNanos;
+        this.slotMask = numSlots - 1;
+
+        slotHeads = new int[numSlots];
+        Arrays.fill(slotHeads, NONE);
+
+        deadlineTicks = new long[0];
+        nextInSlot = new int[0];
+        prevInSlot = new int[0];
+        generations = new int[0];
+        expired = new boolean[0];
+        inUse = new boolean[0];
+        growTo(INITIAL_TIMER_CAPACITY);
+
+        originNanos = source.nanoTime();
+        nowNanos = originNanos;
+    }
+
+    /**
+     * Returns the time as of the last call to advance()
+     */
+    @Override
+    public long nanoTime() {
+        return nowNanos;
+    }
+
+    /**
+     * Reads the underlying clock and expires every timer whose deadline has passed.
+     * Each slot is visited at most once, no matter how much time has gone by.
+     */
+    public void advance() {
+        nowNanos = source.nanoTime();
+        long targetTick = (nowNanos - originNanos) / tickNanos;
+
+        if (targetTick <= currentTick) {
+            return;
+        }
+
+        long ticksToVisit = Math.min(targetTick - currentTick, slotHeads.length);
+
+        for (long tick = currentTick + 1; tick <= currentTick + ticksToVisit; tick++) {
+            int timer = slotHeads[(int) (tick & slotMask)];
+
+            while (timer != NONE) {
+                int nextTimer = nextInSlot[timer];
+
+                if (deadlineTicks[timer] <= targetTick) {
+                    unlinkFromSlot(timer);
+                    expired[timer] = true;
+                }
+
+                timer = nextTimer;
+            }
+        }
+
+        currentTick = targetTick;
+    }
+
+    /**
+     * Starts a timer which expires once the given amount of time has passed, returning
+     * a handle to use with isExpired() and cancel().
+     */
+    public long schedule(long delay, TimeUnit unit) {
+        if (firstFree == NONE) {
+            growTo(deadlineTicks.length * 2);
+        }
+
+        int timer = firstFree;
+        firstFree = nextInSlot[timer];
+        inUse[timer] = true;
+        numActive++;
+
+        long deadlineNanos = nowNanos - originNanos + unit.toNanos(delay);
+
+        // round up, a timer never expires early
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        deadlineTicks[timer] = deadlineTick;
+
+        if (deadlineTick <= currentTick) {
+            expired[timer] = true;
+            nextInSlot[timer] = NONE;
+            prevInSlot[timer] = NONE;
+        } else {
+            expired[timer] = false;
+            linkIntoSlot(timer, (int) (deadlineTick & slotMask));
+        }
+
+        return ((long) generations[timer] << 32) | timer;
+    }
+
+    public boolean isExpired(long handle) {
+        return expired[checkHandle(handle)];
+    }
+
+    /**
+     * Stops the given timer and frees it for re-use, the handle must not be used
+     * afterwards. Cancelling a timer which was already cancelled does nothing.
+     */
+    public void cancel(long handle) {
+        if (!isLive(handle)) {
+            return;
+        }
+
+        int timer = (int) handle;
+
+        if (!expired[timer]) {
+            unlinkFromSlot(timer);
+        }
+
+        inUse[timer] = false;
+        generations[timer]++;
+        nextInSlot[timer] = firstFree;
+        firstFree = timer;
+        numActive--;
+    }
+
+    /** Returns how many timers have been scheduled and not cancelled */
+    public int getActiveTimerCount() {
+        return numActive;
+    }
+
+    private boolean isLive(long handle) {
+        int timer = (int) handle;
+
+        return timer >= 0 && timer < inUse.length && inUse[timer]
+                && generations[timer] == (int) (handle >>> 32);
+    }
+
+    private int checkHandle(long handle) {
+        if (!isLive(handle)) {
+            throw new IllegalArgumentException("Timer has been cancelled, or is not from this timer wheel");
+        }
+
+        return (int) handle;
+    }
+
+    private void linkIntoSlot(int timer, int slot) {
+        int head = slotHeads[slot];
+        nextInSlot[timer] = head;
+        prevInSlot[timer] = NONE;
+
+        if (head != NONE) {
+            prevInSlot[head] = timer;
+        }
+
+        slotHeads[slot] = timer;
+    }
+
+    private void unlinkFromSlot(int timer) {
+        int prev = prevInSlot[timer];
+        int next = nextInSlot[timer];
+
+        if (prev == NONE) {
+            slotHeads[(int) (deadlineTicks[timer] & slotMask)] = next;
+        } else {
+            nextInSlot[prev] = next;
+        }
+
+        if (next != NONE) {
+            prevInSlot[next] = prev;
+        }
+
+        nextInSlot[timer] = NONE;
+        prevInSlot[timer] = NONE;
+    }
+
+    private void growTo(int capacity) {
+        int oldCapacity = deadlineTicks.length;
+
+        deadlineTicks = Arrays.copyOf(deadlineTicks, capacity);
+        nextInSlot = Arrays.copyOf(nextInSlot, capacity);
+        prevInSlot = Arrays.copyOf(prevInSlot, capacity);
+        generations = Arrays.copyOf(generations, capacity);
+        expired = Arrays.copyOf(expired, capacity);
+        inUse = Arrays.copyOf(inUse, capacity);
+
+        // new timers go on the free list, lowest index first
+        for (int i = capacity - 1; i >= oldCapacity; i--) {
+            nextInSlot[i] = firstFree;
+            firstFree = i;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A fixed-size record of a StateMachine's transitions - when each happened, from and to
+ * which state, on which loop and why - for looking at after a match. Recording a transition
+ * only stores primitives into arrays allocated up front, when full the oldest transitions
+ * are overwritten.
+ *
+ * The journal is written with write() (see StateMachine.writeJournal()) and read back with
+ * TransitionJournalReader.
+ */
+public class TransitionJournal {
+    // Why a state moved on, set by states with State.setTransitionReason()
+    public static final int REASON_NONE = 0;
+
+    public static final int REASON_TARGET_REACHED = 1;
+
+    public static final int REASON_TIMEOUT = 2;
+
+    // Transitions made by the debugger rather than by a state
+    public static final int REASON_GO_BACK = 3;
+
+    public static final int REASON_DO_OVER = 4;
+
+    /** A DeadlineChoiceState took an alternative, as there wasn't time for its next state */
+    public static final int REASON_RUNNING_LATE = 5;
+
+    /** A ChoiceState took one of its branches */
+    public static final int REASON_BRANCH_CHOSEN = 6;
+
+    static final int DEFAULT_CAPACITY = 1024;
+
+    /** The "to" state for the state machine finishing */
+    public static final int FINISHED = -1;
+
+    static final int MAGIC = 0x544e544a; // "TNTJ"
+
+    static final int VERSION = 1;
+
+    private final long[] timestampNanos;
+
+    private final int[] fromStates;
+
+    private final int[] toStates;
+
+    private final long[] loopCounts;
+
+    private final byte[] reasons;
+
+    private int next = 0; // next entry to be written
+
+    private int size = 0;
+
+    TransitionJournal(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Journal capacity must be at least 1");
+        }
+
+        timestampNanos = new long[capacity];
+        fromStates = new int[capacity];
+        toStates = new int[capacity];
+        loopCounts = new long[capacity];
+        reasons = new byte[capacity];
+    }
+
+    void record(long nowNanos, int fromState, int toState, long loopCount, int reason) {
+        timestampNanos[next] = nowNanos;
+        fromStates[next] = fromState;
+        toStates[next] = toState;
+        loopCounts[next] = loopCount;
+        reasons[next] = (byte) reason;
+
+        next = (next + 1) % timestampNanos.length;
+
+        if (size < timestampNanos.length) {
+            size++;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Writes the state names, followed by the transitions from oldest to newest
+     */
+    void write(OutputStream out, String[] stateNames) throws IOException {
+        DataOutputStream dataOut = new DataOutputStream(out);
+        dataOut.writeInt(MAGIC);
+        dataOut.writeInt(VERSION);
+
+        dataOut.writeInt(stateNames.length);
+
+        for (String stateName : stateNames) {
+            dataOut.writeUTF(stateName);
+        }
+
+        dataOut.writeInt(size);
+
+        int oldest = (next - size + timestampNanos.length) % timestampNanos.length;
+
+        for (int i = 0; i < size; i++) {
+            int entry = (oldest + i) % timestampNanos.length;
+
+            dataOut.writeLong(timestampNanos[entry]);
+            dataOut.writeInt(fromStates[entry]);
+            dataOut.writeInt(toStates[entry]);
+            dataOut.writeLong(loopCounts[entry]);
+            dataOut.writeByte(reasons[entry]);
+        }
+
+        dataOut.flush();
+    }
+}
@@ -0,0 +1,185 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import java.io.DataInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Reads a journal written by StateMachine.writeJournal(). Does not need the robot, run
+ * main() on a computer with the journal file(s) pulled from the phone to print them.
+ */
+public class TransitionJournalReader {
+    public static class Transition {
+        private final long timestampNanos;
+
+        private final String fromState;
+
+        private final String toState;
+
+        private final long loopCount;
+
+        private final int reason;
+
+        Transition(long timestampNanos, String fromState, String toState, long loopCount, int reason) {
+            this.timestampNanos = timestampNanos;
+            this.fromState = fromState;
+            this.toState = toState;
+            this.loopCount = loopCount;
+            this.reason = reason;
+        }
+
+        public long getTimestampNanos() {
+            return timestampNanos;
+        }
+
+        public String getFromState() {
+            return fromState;
+        }
+
+        /** The name of the state moved to, or null when the state machine finished */
+        public String getToState() {
+            return toState;
+        }
+
+        public long getLoopCount() {
+            return loopCount;
+        }
+
+        /** One of TransitionJournal's REASON_ constants */
+        public int getReason() {
+            return reason;
+        }
+    }
+
+    private final List<String> stateNames;
+
+    private final List<Transition> transitions;
+
+    private TransitionJournalReader(List<String> stateNames, List<Transition> transitions) {
+        this.stateNames = stateNames;
+        this.transitions = transitions;
+    }
+
+    /**
+     * @throws IOException if the journal can not be read, or is not a journal
+     */
+    public static TransitionJournalReader read(InputStream in) throws IOException {
+        DataInputStream dataIn = new DataInputStream(in);
+
+        if (dataIn.readInt() != TransitionJournal.MAGIC) {
+            throw new IOException("Not a state machine journal");
+        }
+
+        int version = dataIn.readInt();
+
+        if (version != TransitionJournal.VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+
+        int numStates = dataIn.readInt();
+        List<String> stateNames = new ArrayList<>(numStates);
+
+        for (int i = 0; i < numStates; i++) {
+            stateNames.add(dataIn.readUTF());
+        }
+
+        int numTransitions = dataIn.readInt();
+        List<Transition> transitions = new ArrayList<>(numTransitions);
+
+        for (int i = 0; i < numTransitions; i++) {
+            long timestampNanos = dataIn.readLong();
+            int fromState = dataIn.readInt();
+            int toState = dataIn.readInt();
+            long loopCount = dataIn.readLong();
+            int reason = dataIn.readByte();
+
+            transitions.add(new Transition(timestampNanos, stateName(stateNames, fromState),
+                    toState == TransitionJournal.FINISHED ? null : stateName(stateNames, toState),
+                    loopCount, reason));
+        }
+
+        return new TransitionJournalReader(Collections.unmodifiableList(stateNames),
+                Collections.unmodifiableList(transitions));
+    }
+
+    private static String stateName(List<String> stateNames, int stateIndex) throws IOException {
+        if (stateIndex < 0 || stateIndex >= stateNames.size()) {
+            throw new IOException("Journal refers to unknown state " + stateIndex);
+        }
+
+        return stateNames.get(stateIndex);
+    }
+
+    private static String describeReason(int reason) {
+        switch (reason) {
+            case TransitionJournal.REASON_NONE:
+                return "";
+            case TransitionJournal.REASON_TARGET_REACHED:
+                return " (target reached)";
+            case TransitionJournal.REASON_TIMEOUT:
+                return " (timed out)";
+            case TransitionJournal.REASON_RUNNING_LATE:
+                return " (running late)";
+            case TransitionJournal.REASON_BRANCH_CHOSEN:
+                return " (branch chosen)";
+            case TransitionJournal.REASON_GO_BACK:
+                return " (go back)";
+            case TransitionJournal.REASON_DO_OVER:
+                return " (do over)";
+            default:
+                return " (reason " + reason + ")";
+        }
+    }
+
+    public List<String> getStateNames() {
+        return stateNames;
+    }
+
+    public List<Transition> getTransitions() {
+        return transitions;
+    }
+
+    /**
+     * Prints each given journal file, with times in milliseconds since the first transition
+     */
+    public static void main(String[] args) throws IOException {
+        for (String fileName : args) {
+            System.out.println(fileName);
+
+            try (InputStream in = new FileInputStream(fileName)) {
+                List<Transition> transitions = read(in).getTransitions();
+
+                for (Transition transition : transitions) {
+                    System.out.println(String.format("%10.1f ms  loop %6d  %s -> %s%s",
+                            (transition.getTimestampNanos() - transitions.get(0).getTimestampNanos()) / 1000000.0,
+                            transition.getLoopCount(), transition.getFromState(),
+                            transition.getToState() == null ? "(finished)" : transition.getToState(),
+                            describeReason(transition.getReason())));
+                }
+            }
+        }
+    }
+}
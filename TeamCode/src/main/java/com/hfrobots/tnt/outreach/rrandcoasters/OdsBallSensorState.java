@@ -42,7 +42,7 @@ public class OdsBallSensorState extends TimeoutSafetyState {
         telemetry.addData("ODS ", ods.getRawLightDetected());
 
         if (ods.getRawLightDetected() >= 2.0) {
-            timerValue = System.currentTimeMillis();
+            timerValue = clock.nanoTime();
             return nextState;
         }
 
@@ -59,6 +59,10 @@ public class OdsBallSensorState extends TimeoutSafetyState {
         return this;
     }
 
+    /**
+     * Returns when (in Clock nanoseconds) the ball was detected, or Long.MIN_VALUE
+     * if it has not been
+     */
     public long getTimerValue() {
         return timerValue;
     }
@@ -88,4 +92,13 @@ public class OdsBallSensorState extends TimeoutSafetyState {
     public void setStateWhenTimedOut(State stateWhenTimedOut) {
         this.stateWhenTimedOut = stateWhenTimedOut;
     }
+
+    @Override
+    protected State[] getBranchStates() {
+        if (stateWhenTimedOut == null) {
+            return super.getBranchStates();
+        }
+
+        return new State[] {stateWhenTimedOut};
+    }
 }
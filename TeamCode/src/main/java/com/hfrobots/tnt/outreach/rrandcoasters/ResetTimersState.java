@@ -44,12 +44,12 @@ public class ResetTimersState extends State {
         long currentEndTimer = endState.getTimerValue();
 
         if (currentStartTimer != Long.MIN_VALUE && currentEndTimer != Long.MIN_VALUE) {
-            long elapsedTimeMs = currentEndTimer - currentStartTimer;
+            long elapsedTimeNanos = currentEndTimer - currentStartTimer;
 
-            if (elapsedTimeMs > 0) {
-                // If we have number of milliseconds, and 1m apart, how do we get to meters/sec
+            if (elapsedTimeNanos > 0) {
+                // If we have number of nanoseconds, and 1m apart, how do we get to meters/sec
 
-                double velocityMetersPerSecond = (double) 1 /* meters */ / ((double) elapsedTimeMs / 1000.0D) /* seconds */;
+                double velocityMetersPerSecond = (double) 1 /* meters */ / ((double) elapsedTimeNanos / 1000000000.0D) /* seconds */;
 
                 latestVelocity.set(velocityMetersPerSecond);
             } else {
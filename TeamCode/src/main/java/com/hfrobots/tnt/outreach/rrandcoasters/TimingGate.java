@@ -58,6 +58,7 @@ public class TimingGate extends OpMode {
         stateMachine.addSequential(detectBallEnd);
         detectBallEnd.setNextState(resetTimersState); // restart after measuring
         detectBallEnd.setStateWhenTimedOut(resetTimersState); // back to the beginning if we timed out
+        stateMachine.compile();
 
     }
 
@@ -20,6 +20,8 @@
 package com.hfrobots.tnt.season1516;
 
 import android.util.Log;
+
+import com.hfrobots.tnt.corelib.control.ResponseCurve;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.hardware.ColorSensor;
 import com.qualcomm.robotcore.hardware.DcMotor;
@@ -192,43 +194,18 @@ public abstract class SkittleBotHardware extends OpMode {
         warningMessage += exceptionMessage;
     }
 
+    private static final ResponseCurve MOTOR_POWER_CURVE = new ResponseCurve(new float[]
+            {0.00f, 0.05f, 0.09f, 0.10f, 0.12f
+                    , 0.15f, 0.18f, 0.24f, 0.30f, 0.36f
+                    , 0.43f, 0.50f, 0.60f, 0.72f, 0.85f
+                    , 1.00f, 1.00f
+            });
+
     /**
      * Scale the joystick input using a nonlinear algorithm.
      */
     protected float scaleMotorPower(float unscaledPower) {
-
-        //
-        // Ensure the values are legal.
-        //
-        float clippedPower = Range.clip(unscaledPower, -1, 1);
-
-        float[] scaleFactors =
-                {0.00f, 0.05f, 0.09f, 0.10f, 0.12f
-                        , 0.15f, 0.18f, 0.24f, 0.30f, 0.36f
-                        , 0.43f, 0.50f, 0.60f, 0.72f, 0.85f
-                        , 1.00f, 1.00f
-                };
-
-        //
-        // Get the corresponding index for the given unscaled power.
-        //
-        int scaleIndex = (int) (clippedPower * 16.0);
-
-        if (scaleIndex < 0) {
-            scaleIndex = -scaleIndex;
-        } else if (scaleIndex > 16) {
-            scaleIndex = 16;
-        }
-
-        final float scaledPower;
-
-        if (clippedPower < 0) {
-            scaledPower = -scaleFactors[scaleIndex];
-        } else {
-            scaledPower = scaleFactors[scaleIndex];
-        }
-
-        return scaledPower;
+        return MOTOR_POWER_CURVE.shape(unscaledPower);
     }
 
     double getY1MotorDrivePower() {
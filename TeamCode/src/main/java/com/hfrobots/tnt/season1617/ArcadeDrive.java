@@ -23,6 +23,7 @@ import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.OnOffButton;
 import com.hfrobots.tnt.corelib.control.RangeInput;
+import com.hfrobots.tnt.corelib.control.ResponseCurve;
 import com.hfrobots.tnt.corelib.drive.TankDrive;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.util.Range;
@@ -146,14 +147,9 @@ public class ArcadeDrive {
         tankDrive.drivePower(leftPower, rightPower);
     }
 
-    protected float gain = 0.3F;
-    protected float deadband = 0;
+    protected ResponseCurve responseCurve = ResponseCurve.DRIVE;
 
     float scaleMotorPower(float unscaledPower) {
-        if (unscaledPower >= 0) {
-            return deadband + (1-deadband)*(gain * (float)Math.pow(unscaledPower, 3) + (1 - gain) * unscaledPower);
-        } else {
-            return  -1 * deadband + (1-deadband)*(gain * (float)Math.pow(unscaledPower, 3) + (1 - gain) * unscaledPower);
-        }
+        return responseCurve.shape(unscaledPower);
     }
 }
@@ -23,20 +23,32 @@ import android.support.annotation.NonNull;
 import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+import com.hfrobots.tnt.corelib.control.FixedRateControlThread;
 import com.hfrobots.tnt.corelib.drive.DriveUntilLineState;
 import com.hfrobots.tnt.corelib.drive.GyroTurnState;
 import com.hfrobots.tnt.corelib.drive.ProportionalDriveInchesStateExternalControl;
 import com.hfrobots.tnt.corelib.drive.Turn;
+import com.hfrobots.tnt.corelib.state.DeadlineChoiceState;
 import com.hfrobots.tnt.corelib.state.DelayState;
+import com.hfrobots.tnt.corelib.state.RouteDescription;
+import com.hfrobots.tnt.corelib.state.RouteDurationEstimator;
+import com.hfrobots.tnt.corelib.state.RouteStep;
+import com.hfrobots.tnt.corelib.state.RouteStepFactory;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.StateMachine;
+import com.hfrobots.tnt.corelib.state.StateMachineState;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 import com.qualcomm.robotcore.eventloop.opmode.Disabled;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.robotcore.external.navigation.Rotation;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
 
+import java.io.File;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 @Autonomous(name="VV Auto")
@@ -49,30 +61,107 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
     private static final String LOG_TAG = "TNT Auto";
     private StateMachine stateMachine = null;
 
-    // The routes our robot knows how to do
-    private enum Routes {
-        CLAIM_CLOSEST_BEACON("Claim beacons"),
-        PARK_ON_RAMP_1("Park on ramp 1"),
-        PARK_ON_RAMP_2("Park on ramp 2"),
-        PARK_ON_RAMP_3("Park on ramp 3"),
-        PARK_ON_VORTEX_1("Park on center vortex 1"),
-        PARK_ON_VORTEX_2("Park on center vortex 2"),
-        PARK_ON_VORTEX_3("Park on center vortex 3");
-
-        final String description;
-
-        Routes(String description) {
-            this.description = description;
-        }
-
-        public String getDescription() {
-            return description;
-        }
-    }
+    // When set, the state machine runs on its own thread at a fixed rate, otherwise in loop()
+    protected boolean useControlThread = false;
+
+    private static final long CONTROL_PERIOD_MILLIS = 10;
+
+    // Runs stateMachine once loop() has been called
+    private FixedRateControlThread controlThread = null;
+
+    // Built once, and shared by whichever route is selected
+    private StateMachine particleShooterStateMachine = null;
+
+    // Claiming beacons is done in code, the rest of the routes come from PARKING_ROUTES,
+    // or from ROUTES_FILE (if it exists) so that they can be changed without re-compiling
+    private static final String CLAIM_BEACONS_ROUTE = "Claim beacons";
+
+    private static final File ROUTES_FILE = new File(AppUtil.FIRST_FOLDER, "routes/vv-beacons.txt");
+
+    // Pull these from the phone and read them with TransitionJournalReader
+    private static final File JOURNAL_FOLDER = new File(AppUtil.FIRST_FOLDER, "journals");
+
+    private static final String PARKING_ROUTES =
+            "route Park on ramp 1\n" +
+            "delay 1 ms # only for testing now, remove when we make this real for the match\n" +
+            "drive 20\n" +
+            "shoot\n" +
+            "turn ccw 97\n" +
+            "drive 32\n" +
+            "done Park on ramp 1 done\n" +
+            "\n" +
+            "route Park on ramp 2\n" +
+            "delay 1 ms\n" +
+            "drive 25.5\n" +
+            "turn ccw 33\n" +
+            "shoot\n" +
+            "turn ccw 44\n" +
+            "drive 58\n" +
+            "done Park on ramp 2 done\n" +
+            "\n" +
+            "route Park on ramp 3\n" +
+            "delay 1 ms\n" +
+            "drive 5\n" +
+            "turn ccw 33\n" +
+            "drive 32.5\n" +
+            "shoot\n" +
+            "turn ccw 50\n" +
+            "drive 59\n" +
+            "done Park on ramp 3 done\n" +
+            "\n" +
+            "route Park on center vortex 1\n" +
+            "delay 1 ms\n" +
+            "drive 20\n" +
+            "shoot\n" +
+            "drive 12.5\n" +
+            "turn ccw 90 # and back, to clear the cap ball\n" +
+            "turn cw 90\n" +
+            "drive 20\n" +
+            "done Park on vortex 1 done\n" +
+            "\n" +
+            "route Park on center vortex 2\n" +
+            "delay 1 ms\n" +
+            "drive 25.5\n" +
+            "turn ccw 33\n" +
+            "shoot\n" +
+            "drive 14\n" +
+            "turn ccw 45\n" +
+            "turn cw 45\n" +
+            "drive 10\n" +
+            "done Park on vortex 2 done\n" +
+            "\n" +
+            "route Park on center vortex 3\n" +
+            "delay 1 ms\n" +
+            "drive 5\n" +
+            "turn ccw 33\n" +
+            "drive 32.5\n" +
+            "shoot\n" +
+            "drive 12.5\n" +
+            "turn ccw 45\n" +
+            "turn cw 45\n" +
+            "drive 7\n" +
+            "done Park on vortex 3 done\n";
+
+    private RouteDescription parkingRoutes;
+
+    private static final long AUTONOMOUS_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private static final int BEACON_POINTS = 30;
+
+    private static final int PARTIAL_CENTER_VORTEX_PARKING_POINTS = 5;
+
+    // Parking after the first beacon when running late, off until the turn and drive to the
+    // center vortex have been measured on the field
+    private static final boolean PARK_WHEN_LATE = false;
+
+    private final RouteDurationEstimator routeDurationEstimator = new RouteDurationEstimator(MOTION_MODEL);
+
+    // Estimated time for the state machine that is built (including the start delay)
+    private long builtRouteEstimatedNanos;
 
     private int selectedRoutesIndex = 0;
 
-    private Routes[] possibleRoutes = Routes.values();
+    private String[] possibleRoutes;
 
     private enum Alliance { RED, BLUE };
 
@@ -88,6 +177,18 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
     @Override
     public void init() {
         super.init();
+
+        parkingRoutes = RouteDescription.load(ROUTES_FILE, PARKING_ROUTES, new ParkingRouteStepFactory());
+        List<String> parkingRouteNames = parkingRoutes.getRouteNames();
+        possibleRoutes = new String[parkingRouteNames.size() + 1];
+        possibleRoutes[0] = CLAIM_BEACONS_ROUTE;
+
+        for (int i = 0; i < parkingRouteNames.size(); i++) {
+            possibleRoutes[i + 1] = parkingRouteNames.get(i);
+        }
+
+        logRoutesFastestFirst();
+
         gyro.calibrate();
         beaconColorSensor.enableLed(false);
         setDefaults();
@@ -104,6 +205,16 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
     @Override
     public void stop() {
         super.stop();
+
+        if (controlThread != null) {
+            controlThread.stop();
+        }
+
+        if (stateMachine != null) {
+            stateMachine.logProfile();
+            stateMachine.writeJournal(new File(JOURNAL_FOLDER, "vv-beacons-" + System.currentTimeMillis() + ".journal"));
+        }
+
         logBatteryState("Auto.stop()");
     }
 
@@ -113,6 +224,16 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         initialDelaySeconds = 0;
     }
 
+    // What the current state machine was built for, it is re-built during init_loop()
+    // only when the selection changes, so that loop() doesn't have to
+    private String builtRoute = null;
+
+    private Alliance builtAlliance = null;
+
+    private int builtDelaySeconds = -1;
+
+    private boolean builtDebugging = false;
+
     private boolean configLocked = false;
 
     // Called repeatedly after init button has been pressed and init() has completed (we think)
@@ -141,6 +262,8 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
             telemetry.addData("00", "UNLOCKED: Press Lt stick lock");
         }
 
+        maybeRebuildSelectedStateMachine();
+
         String mode = debugging  ? "D" : "R";
 
         int blueColorReading = beaconColorSensor.blue();
@@ -152,11 +275,16 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         }
 
         telemetry.addData("01", "[%s] Alliance: %s", mode, currentAlliance);
-        telemetry.addData("02", "[%s] Route: %s", mode, possibleRoutes[selectedRoutesIndex].getDescription());
+        telemetry.addData("02", "[%s] Route: %s (~%.1f sec)", mode, possibleRoutes[selectedRoutesIndex],
+                builtRouteEstimatedNanos / 1000000000.0);
         telemetry.addData("03", "[%s] Delay %d sec", mode, initialDelaySeconds);
         telemetry.addData("04", "Color sensor: %d %d %d", redColorReading, greenColorReading, blueColorReading);
         telemetry.addData("05", "[%s] Gyro calibrating: %s", mode, Boolean.toString(gyro.isCalibrating()));
 
+        if (builtRouteEstimatedNanos > AUTONOMOUS_PERIOD_NANOS) {
+            telemetry.addData("06", "** ROUTE + DELAY WILL NOT FINISH IN 30 SEC **");
+        }
+
         updateTelemetry(telemetry);
     }
 
@@ -208,6 +336,23 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         }
     }
 
+    private void maybeRebuildSelectedStateMachine() {
+        String selectedRoute = possibleRoutes[selectedRoutesIndex];
+
+        if (stateMachine == null
+                || !selectedRoute.equals(builtRoute)
+                || currentAlliance != builtAlliance
+                || initialDelaySeconds != builtDelaySeconds
+                || debugging != builtDebugging) {
+            long startBuildNanos = System.nanoTime();
+
+            setupSelectedStateMachine();
+
+            Log.d(LOG_TAG, String.format("Built route %s for %s in %.1f ms", selectedRoute,
+                    currentAlliance, (System.nanoTime() - startBuildNanos) / 1000000.0));
+        }
+    }
+
     @Override
     public void loop() {
         try {
@@ -215,7 +360,23 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
                 setupSelectedStateMachine();
             }
 
-            stateMachine.doOneStateLoop();
+            if (!useControlThread) {
+                stateMachine.doOneStateLoop();
+            } else {
+                if (controlThread == null) {
+                    // The state machine runs at a fixed rate, no matter how often loop() is called
+                    controlThread = new FixedRateControlThread("state machine", CONTROL_PERIOD_MILLIS,
+                            TimeUnit.MILLISECONDS, new Runnable() {
+                        @Override
+                        public void run() {
+                            stateMachine.doOneStateLoop();
+                        }
+                    });
+                    controlThread.start();
+                }
+
+                controlThread.checkNotFailed();
+            }
 
             telemetry.update(); // send all telemetry to the drivers' station
         } catch (Throwable t) {
@@ -234,36 +395,12 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
     }
 
     protected void setupSelectedStateMachine() {
-        /* We have not configured the state machine yet, do so from the options
-         selected during init_loop() */
-
-        Routes selectedRoute = possibleRoutes[selectedRoutesIndex];
-
-        switch (selectedRoute) {
-            case CLAIM_CLOSEST_BEACON:
-                stateMachine = claimBeacons();
-                break;
-            case PARK_ON_RAMP_1:
-                stateMachine = parkOnRamp1();
-                break;
-            case PARK_ON_RAMP_2:
-                stateMachine = parkOnRamp2();
-                break;
-            case PARK_ON_RAMP_3:
-                stateMachine = parkOnRamp3();
-                break;
-            case PARK_ON_VORTEX_1:
-                stateMachine = parkOnVortex1();
-                break;
-            case PARK_ON_VORTEX_2:
-                stateMachine = parkOnVortex2();
-                break;
-            case PARK_ON_VORTEX_3:
-                stateMachine = parkOnVortex3();
-                break;
-            default:
-                throw new IllegalArgumentException("Invalid route selected");
-        }
+        /* Configure the state machine from the options selected during init_loop(),
+         normally called from init_loop() so the route is ready when loop() starts */
+
+        String selectedRoute = possibleRoutes[selectedRoutesIndex];
+
+        stateMachine = buildRoute(selectedRoute);
 
         if (initialDelaySeconds != 0) {
             stateMachine.addStartDelay(initialDelaySeconds);
@@ -274,375 +411,55 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         } else {
             stateMachine.stopDebugging();
         }
-    }
 
-    /**
-     * Turns are relative to being in the red alliance. Because this game is exactly
-     * mirror image, to get our routes working for the blue alliance we simply need to
-     * reverse the direction of the turn
-     */
-    private Turn adjustTurnForAlliance(Turn origTurn) {
-        if (currentAlliance == Alliance.RED) {
-            return origTurn;
-        }
+        stateMachine.compile();
+        builtRouteEstimatedNanos = routeDurationEstimator.estimateNanos(stateMachine);
 
-        return origTurn.invert();
+        builtRoute = selectedRoute;
+        builtAlliance = currentAlliance;
+        builtDelaySeconds = initialDelaySeconds;
+        builtDebugging = debugging;
     }
 
-    private StateMachine parkOnRamp3() {
-        StateMachine stateMachine = commonStateMachineSetup();
-
-        // This is only for testing now, remove when we make this real for the match
-        DelayState dummyDelayState = new DelayState("Dummy", telemetry, 1, TimeUnit.MILLISECONDS);
-        stateMachine.addSequential(dummyDelayState);
-
-        //(1)forward 5"
-        ProportionalDriveInchesStateExternalControl step1DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 1 - drive forward", drive, telemetry, 5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step1DriveState);
-
-        //(2)turn 45 CCW
-        State step2TurnState = new GyroTurnState("Step 2 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 33)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step2TurnState);
-
-        //(3)forward 32.5"
-        ProportionalDriveInchesStateExternalControl step3DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 32.5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step3DriveState);
-
-        //(4)stop and shoot
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
-
-        //(5)turn 68.2 CCW
-        State step5TurnState = new GyroTurnState("Step 5 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 50)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step5TurnState);
-
-        //(6) forward 49"
-        ProportionalDriveInchesStateExternalControl step6DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 6 - drive forward", drive, telemetry, 59 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step6DriveState);
-
-        // (7) Reverse collector
-
-        // (8) Drive up ramp
-
-        // (9) Stop collector
-
-        // (10) Turn to park
-
-        // (11) Done
-        stateMachine.addSequential(newDoneState("Park on ramp 3 done"));
-
-        return stateMachine;
-    }
-
-    private StateMachine parkOnRamp1() {
-        StateMachine stateMachine = commonStateMachineSetup();
-
-        // This is only for testing now, remove when we make this real for the match
-        DelayState dummyDelayState = new DelayState("Dummy", telemetry, 1, TimeUnit.MILLISECONDS);
-        stateMachine.addSequential(dummyDelayState);
-
-        // (1) Drive forward 16"
-        ProportionalDriveInchesStateExternalControl step1DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 1 - drive forward", drive, telemetry, 20 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step1DriveState);
-
-        // (2) Shoot
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
-
-        // (3) Turn 97 degrees CCW
-        State step3TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 97)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step3TurnState);
-
-        // (4) Forward 26"
-        ProportionalDriveInchesStateExternalControl step4DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 1 - drive forward", drive, telemetry, 32 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step4DriveState);
-
-        // (5) Square up with ramp (not done yet)
-
-
-        // (6) Reverse collector
-
-
-        // (7) Drive up ramp
-
-        // (8) Stop collector
-
-        // (9) Turn to park
-
-        // (10) Done
-
-        stateMachine.addSequential(newDoneState("Park on ramp 1 done"));
-
-        return stateMachine;
-    }
-
-    private StateMachine parkOnRamp2() {
-        StateMachine stateMachine = commonStateMachineSetup();
-
-        // This is only for testing now, remove when we make this real for the match
-        DelayState dummyDelayState = new DelayState("Dummy", telemetry, 1, TimeUnit.MILLISECONDS);
-        stateMachine.addSequential(dummyDelayState);
-
-        // (1) Drive forward 25.5"
-        ProportionalDriveInchesStateExternalControl step1DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 1 - drive forward", drive, telemetry, 25.5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step1DriveState);
-
-
-        // (2) Turn 45 degrees CCW
-        State step2TurnState = new GyroTurnState("Step 2 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 33)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step2TurnState);
-
-        // (3) Shoot
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
-
-        // (3) Turn 64 degrees CCW
-        State step3TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 44)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step3TurnState);
-
-        // (4) Forward 51"
-        ProportionalDriveInchesStateExternalControl step4DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 1 - drive forward", drive, telemetry, 58 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step4DriveState);
-
-        // (5) Square up with ramp (not done yet)
-
-        // (6) Reverse collector
-
-        // (7) Drive up ramp
-
-        // (8) Stop collector
-
-        // (9) Turn to park
-
-        // (10) Done
-
-        stateMachine.addSequential(newDoneState("Park on ramp 3 done"));
-
-        return stateMachine;
-    }
-
-    private StateMachine parkOnVortex1() {
-        StateMachine stateMachine = commonStateMachineSetup();
-
-        // This is only for testing now, remove when we make this real for the match
-        DelayState dummyDelayState = new DelayState("Dummy", telemetry, 1, TimeUnit.MILLISECONDS);
-        stateMachine.addSequential(dummyDelayState);
-
-        // (1) Drive forward 16"
-
-        ProportionalDriveInchesStateExternalControl step1DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 1 - drive forward", drive, telemetry, 20 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step1DriveState);
-
-
-        // (2) Particle Shoot
-        // (2a) - Need a state for "waiting" for button press, a DelayState?
-
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
-
-        // (3) Drive forward 16.5"
-        ProportionalDriveInchesStateExternalControl step4DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 12.5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step4DriveState);
-
-
-        // (4) Turn 90 degrees CCW (and back) to clear the cap ball
-
-        State step3TurnState = new GyroTurnState("Step 4 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 90)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step3TurnState);
-
-
-        // (5) Turn 90 degrees CW
-        State step5TurnState = new GyroTurnState("Step 5 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CW, 90)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step5TurnState);
-
-        // (6) Forward 18"
-        ProportionalDriveInchesStateExternalControl step6DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 6 - drive forward", drive, telemetry, 20 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step6DriveState);
+    private StateMachine buildRoute(String routeName) {
+        if (CLAIM_BEACONS_ROUTE.equals(routeName)) {
+            return claimBeacons();
+        }
 
-        // (8) Done
-        stateMachine.addSequential(newDoneState("Park on vortex 1 done"));
+        StateMachine route = commonStateMachineSetup();
+        parkingRoutes.addToStateMachine(routeName, route, new ParkingRouteStepFactory());
 
-        return stateMachine;
+        return route;
     }
 
-    private StateMachine parkOnVortex2() {
-        StateMachine stateMachine = commonStateMachineSetup();
-
-        // This is only for testing now, remove when we make this real for the match
-        DelayState dummyDelayState = new DelayState("Dummy", telemetry, 1, TimeUnit.MILLISECONDS);
-        stateMachine.addSequential(dummyDelayState);
-
-        // (1) Forward 25.5"
-        ProportionalDriveInchesStateExternalControl step1DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 25.5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step1DriveState);
-
-        // (2) Turn 45 deg ccw
-        State step2TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 33)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step2TurnState);
-
-        // (3) Shoot
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
-
-        // (4) Forward 14"
-        ProportionalDriveInchesStateExternalControl step4DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 14 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step4DriveState);
-
-        // (5) Turn 45 degrees ccw
-        State step5TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 45)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step5TurnState);
-
-        // (6) Turn 45 degrees cw
-        State step6TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CW, 45)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step6TurnState);
-
-        // (7) Forward 3"
-        ProportionalDriveInchesStateExternalControl step7DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 10 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step7DriveState);
+    /**
+     * Builds every route (without a start delay) to log them from fastest to slowest,
+     * according to MOTION_MODEL
+     */
+    private void logRoutesFastestFirst() {
+        Map<String, Long> estimatedNanosByRoute = new HashMap<>();
 
-        // (8) Done
-        stateMachine.addSequential(newDoneState("Park on vortex 2 done"));
+        for (String routeName : possibleRoutes) {
+            estimatedNanosByRoute.put(routeName, routeDurationEstimator.estimateNanos(buildRoute(routeName)));
+        }
 
-        return stateMachine;
+        for (String routeName : RouteDurationEstimator.rankFastestFirst(estimatedNanosByRoute)) {
+            Log.d(LOG_TAG, String.format("Route %s, estimated %.1f sec", routeName,
+                    estimatedNanosByRoute.get(routeName) / 1000000000.0));
+        }
     }
 
-    private StateMachine parkOnVortex3() {
-        StateMachine stateMachine = commonStateMachineSetup();
-
-        // This is only for testing now, remove when we make this real for the match
-        DelayState dummyDelayState = new DelayState("Dummy", telemetry, 1, TimeUnit.MILLISECONDS);
-        stateMachine.addSequential(dummyDelayState);
-
-        // (1) Forward 5"
-        ProportionalDriveInchesStateExternalControl step1DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step1DriveState);
-
-        // (2) Turn 45 deg ccw
-        State step2TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 33)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step2TurnState);
-
-        // (3) Forward 32.5"
-        ProportionalDriveInchesStateExternalControl step3DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 32.5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step3DriveState);
-
-
-        // (4) Shoot
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
-
-        // (5) Forward 12.5"
-        ProportionalDriveInchesStateExternalControl step5DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 12.5 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step5DriveState);
-
-        // (6) Turn 45 deg ccw
-        State step6TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CCW, 45)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step6TurnState);
-
-        // (7) Turn 45 deg cw
-        State step7TurnState = new GyroTurnState("Step 3 turn", drive,
-                gyro,
-                adjustTurnForAlliance(new Turn(Rotation.CW, 45)),
-                telemetry,
-                POWER_LEVEL,
-                20000L);
-        stateMachine.addSequential(step7TurnState);
-
-        // (8) Forward 7"
-        ProportionalDriveInchesStateExternalControl step8DriveState = new ProportionalDriveInchesStateExternalControl(
-                "State 3 - drive forward", drive, telemetry, 7 /* inches */,
-                POWER_LEVEL /* power level*/, 15000 /* milliseconds to timeout */);
-        stateMachine.addSequential(step8DriveState);
-
-        // (8) Done
-        stateMachine.addSequential(newDoneState("Park on vortex 3 done"));
+    /**
+     * Turns are relative to being in the red alliance. Because this game is exactly
+     * mirror image, to get our routes working for the blue alliance we simply need to
+     * reverse the direction of the turn
+     */
+    private Turn adjustTurnForAlliance(Turn origTurn) {
+        if (currentAlliance == Alliance.RED) {
+            return origTurn;
+        }
 
-        return stateMachine;
+        return origTurn.invert();
     }
 
     private StateMachine claimBeacons() {
@@ -672,7 +489,7 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         // (2a) - Need a state for "waiting" for button press, a DelayState?
         // Collector off, it vibrates the gyro
 
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
+        addParticleShooterForAuto(stateMachine);
 
         // (3) Turn 50 degrees CCW
         State step3TurnState = new GyroTurnState("Step 3 turn", drive,
@@ -723,6 +540,11 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         stateMachine.addSequential(new PusherRetractState(telemetry));
         stateMachine.addSequential(new DelayState("waiting for beacon retract", telemetry, 1));
 
+        // If we're running late, park instead of running out of time on the way to the second beacon
+        if (PARK_WHEN_LATE) {
+            stateMachine.addSequential(newSecondBeaconOrParkState(stateMachine));
+        }
+
         // FIXME: If we're getting penalty (wrong) beacons by brush-by, reduce this angle!
         State step7TurnState = new GyroTurnState("Step 7 turn", drive,
                 gyro,
@@ -780,7 +602,7 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         // (2a) - Need a state for "waiting" for button press, a DelayState?
         // Collector off, it vibrates the gyro
 
-        addParticleShooterForAuto(stateMachine, new CollectorOffState(telemetry));
+        addParticleShooterForAuto(stateMachine);
 
         // (3) Turn 50 degrees CCW
         // 50 really gets us 60
@@ -830,6 +652,11 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         stateMachine.addSequential(new PusherRetractState(telemetry));
         stateMachine.addSequential(new DelayState("waiting for beacon retract", telemetry, 1));
 
+        // If we're running late, park instead of running out of time on the way to the second beacon
+        if (PARK_WHEN_LATE) {
+            stateMachine.addSequential(newSecondBeaconOrParkState(stateMachine));
+        }
+
         State step7TurnState = new GyroTurnState("Step 7 turn", drive,
                 gyro,
                 new Turn(Rotation.CW, 5),
@@ -868,9 +695,41 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
         return stateMachine;
     }
 
+    /**
+     * Continues with the second beacon (the next state added) when there's enough of
+     * autonomous left to claim it, otherwise parks on the center vortex
+     */
+    private DeadlineChoiceState newSecondBeaconOrParkState(StateMachine stateMachine) {
+        DeadlineChoiceState secondBeaconOrParkState = new DeadlineChoiceState("Second beacon or park",
+                telemetry, stateMachine, MOTION_MODEL, BEACON_POINTS);
+
+        // FIXME: Not yet measured on the field
+        State turnToVortexState = new GyroTurnState("Turn towards center vortex", drive,
+                gyro,
+                adjustTurnForAlliance(new Turn(Rotation.CCW, 45)),
+                telemetry,
+                POWER_LEVEL,
+                20000L);
+
+        // Blue runs the beacon route backwards
+        ProportionalDriveInchesStateExternalControl driveToVortexState = new ProportionalDriveInchesStateExternalControl(
+                "Drive to center vortex", drive, telemetry, 40,
+                POWER_LEVEL, currentAlliance == Alliance.RED ? DcMotorSimple.Direction.REVERSE : DcMotorSimple.Direction.FORWARD,
+                15000 /* milliseconds to timeout */);
+
+        turnToVortexState.setNextState(driveToVortexState);
+        driveToVortexState.setNextState(newDoneState("Parked after first beacon"));
+        secondBeaconOrParkState.addAlternative(turnToVortexState, PARTIAL_CENTER_VORTEX_PARKING_POINTS);
+
+        return secondBeaconOrParkState;
+    }
+
     @NonNull
     private StateMachine commonStateMachineSetup() {
         StateMachine stateMachine = new StateMachine(telemetry);
+        stateMachine.enableProfiling();
+        stateMachine.enableJournal();
+        stateMachine.setDeadline(AUTONOMOUS_PERIOD_NANOS, TimeUnit.NANOSECONDS);
 
         // Setup debugger controls
         stateMachine.setDoOverButton(driverBRedButton);
@@ -882,17 +741,95 @@ public class VelocityVortexBeacons extends VelocityVortexHardware {
     }
 
 
-    private void addParticleShooterForAuto(StateMachine stateMachine, State collectorEndState) {
-        State step2aSettleState = new DelayState("Wait to shoot", telemetry,
-                250, TimeUnit.MILLISECONDS);
+    private void addParticleShooterForAuto(StateMachine stateMachine) {
+        stateMachine.addSequential(newParticleShooterState());
+    }
+
+    private State newParticleShooterState() {
+        if (particleShooterStateMachine == null) {
+            particleShooterStateMachine = new StateMachine(telemetry);
+
+            State step2aSettleState = new DelayState("Wait to shoot", telemetry,
+                    250, TimeUnit.MILLISECONDS);
+
+            // (2b) - Need a state for waiting to "release" the button, another DelayState?
+
+            State step2bWaitForParticlesState = new DelayState("Wait to shoot", telemetry,
+                    3, TimeUnit.SECONDS);
+
+            // PEW PEW!
+            addShooterStateMachine(particleShooterStateMachine, step2aSettleState,
+                    step2bWaitForParticlesState, new CollectorOffState(telemetry), false);
+            particleShooterStateMachine.compile();
+        }
+
+        return new StateMachineState("Shoot particles", telemetry, particleShooterStateMachine);
+    }
+
+    /**
+     * Steps that can be used in PARKING_ROUTES (or ROUTES_FILE), distances are in inches
+     * and turns are for the red alliance, they are mirrored for the blue alliance.
+     *
+     * <pre>
+     * delay 250 ms | delay 2 s
+     * drive inches [power=0.4] [timeout=15000]
+     * turn ccw|cw degrees [power=0.4] [timeout=20000]
+     * shoot
+     * done name of done state
+     * </pre>
+     */
+    class ParkingRouteStepFactory implements RouteStepFactory {
+        @Override
+        public State newState(RouteStep step) {
+            switch (step.getCommand()) {
+                case "delay":
+                    return newRouteDelayState(step);
+                case "drive":
+                    return new ProportionalDriveInchesStateExternalControl(step.toString(), drive, telemetry,
+                            step.getDoubleArgument(0),
+                            step.getDoubleOption("power", POWER_LEVEL),
+                            step.getLongOption("timeout", 15000));
+                case "turn":
+                    return new GyroTurnState(step.toString(), drive,
+                            gyro,
+                            adjustTurnForAlliance(new Turn(parseRotation(step), (int) Math.round(step.getDoubleArgument(1)))),
+                            telemetry,
+                            step.getDoubleOption("power", POWER_LEVEL),
+                            step.getLongOption("timeout", 20000));
+                case "shoot":
+                    return newParticleShooterState();
+                case "done":
+                    return newDoneState(step.getArgumentsFrom(0));
+                default:
+                    throw step.invalid("unknown command");
+            }
+        }
 
-        // (2b) - Need a state for waiting to "release" the button, another DelayState?
+        private State newRouteDelayState(RouteStep step) {
+            double amount = step.getDoubleArgument(0);
+            String unit = step.getArgumentCount() > 1 ? step.getArgument(1) : "s";
+
+            switch (unit) {
+                case "ms":
+                    return new DelayState(step.toString(), telemetry, Math.round(amount), TimeUnit.MILLISECONDS);
+                case "s":
+                    return new DelayState(step.toString(), telemetry, Math.round(amount * 1000), TimeUnit.MILLISECONDS);
+                default:
+                    throw step.invalid("delay must be in ms or s");
+            }
+        }
 
-        State step2bWaitForParticlesState = new DelayState("Wait to shoot", telemetry,
-                3, TimeUnit.SECONDS);
+        private Rotation parseRotation(RouteStep step) {
+            String direction = step.getArgument(0);
 
-        // PEW PEW!
-        addShooterStateMachine(stateMachine, step2aSettleState, step2bWaitForParticlesState, collectorEndState, false);
+            if ("ccw".equalsIgnoreCase(direction)) {
+                return Rotation.CCW;
+            } else if ("cw".equalsIgnoreCase(direction)) {
+                return Rotation.CW;
+            }
+
+            throw step.invalid("turn must be ccw or cw");
+        }
     }
 
     class PusherRetractState extends State {
@@ -36,7 +36,9 @@ import com.hfrobots.tnt.corelib.drive.Sprocket;
 import com.hfrobots.tnt.corelib.drive.TankDrive;
 import com.hfrobots.tnt.corelib.drive.Turn;
 import com.hfrobots.tnt.corelib.drive.Wheel;
+import com.hfrobots.tnt.corelib.state.CycleBudget;
 import com.hfrobots.tnt.corelib.state.DelayState;
+import com.hfrobots.tnt.corelib.state.MotionModel;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.StateMachine;
 import com.qualcomm.hardware.modernrobotics.ModernRoboticsAnalogOpticalDistanceSensor;
@@ -66,6 +68,17 @@ public abstract class VelocityVortexHardware extends OpMode {
     protected static final double BEACON_PUSHER_OUT_POSITION = 1;
     protected static final double BEACON_PUSHER_IN_POSITION = 0.12;
 
+    // Rough numbers for this robot (NeveRest 40s, 4" wheels), used to estimate how long
+    // autonomous routes take - measure and update if the drive train changes
+    protected static final MotionModel MOTION_MODEL = new MotionModel(
+            30 /* in/sec */, 40 /* in/sec^2 */, 180 /* deg/sec */, 360 /* deg/sec^2 */, 20 /* ms loop */);
+
+    // Past this point in a loop, telemetry and diagnostic logging wait for a later loop
+    private static final long CONTROL_BUDGET_MILLIS = 15;
+
+    /** Subclasses call startCycle() at the top of loop() */
+    protected final CycleBudget cycleBudget = new CycleBudget(CONTROL_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+
     protected NinjaGamePad driversGamepad;
 
     protected NinjaGamePad operatorsGamepad;
@@ -291,6 +304,15 @@ public abstract class VelocityVortexHardware extends OpMode {
 
     }
 
+    /**
+     * Takes this loop's snapshot of both gamepads, call at the top of loop() so that every
+     * input read during the loop agrees
+     */
+    protected void snapshotGamepads() {
+        driversGamepad.snapshot();
+        operatorsGamepad.snapshot();
+    }
+
     private void setupDriverControls() {
         driversGamepad = new NinjaGamePad(gamepad1);
         driverLeftStickX = driversGamepad.getLeftStickX();
@@ -472,39 +494,7 @@ public abstract class VelocityVortexHardware extends OpMode {
     }
 
     protected State newDelayState(String name, final int numberOfSeconds) {
-        return new State(name, telemetry) {
-
-            private long startTime = 0;
-            private long thresholdTimeMs = TimeUnit.SECONDS.toMillis(numberOfSeconds);
-
-            @Override
-            public void resetToStart() {
-                startTime = 0;
-            }
-
-            @Override
-            public void liveConfigure(DebouncedGamepadButtons buttons) {
-
-            }
-
-            @Override
-            public State doStuffAndGetNextState() {
-                if (startTime == 0) {
-                    startTime = System.currentTimeMillis();
-                    return this;
-                }
-
-                long now = System.currentTimeMillis();
-                long elapsedMs = now - startTime;
-
-                if (elapsedMs > thresholdTimeMs) {
-                    return nextState;
-                }
-
-                telemetry.addData("04", "Delay: %d of %d ms", elapsedMs, thresholdTimeMs);
-                return this;
-            }
-        };
+        return new DelayState(name, telemetry, numberOfSeconds);
     }
 
     class WaitForButton extends State {
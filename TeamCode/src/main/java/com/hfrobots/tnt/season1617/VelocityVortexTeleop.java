@@ -22,11 +22,20 @@ package com.hfrobots.tnt.season1617;
 
 import android.util.Log;
 
+import com.hfrobots.tnt.corelib.control.CommandBuffer;
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+import com.hfrobots.tnt.corelib.control.FixedRateControlThread;
+import com.hfrobots.tnt.corelib.control.LatencyTracker;
+import com.hfrobots.tnt.corelib.control.MultiRateScheduler;
 import com.hfrobots.tnt.corelib.drive.CheesyDrive;
+import com.hfrobots.tnt.corelib.state.Command;
+import com.hfrobots.tnt.corelib.state.CommandScheduler;
 import com.hfrobots.tnt.corelib.state.DelayState;
+import com.hfrobots.tnt.corelib.state.ParallelState;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.StateMachine;
+import com.hfrobots.tnt.corelib.state.StateMachineState;
+import com.hfrobots.tnt.corelib.state.Subsystem;
 import com.hfrobots.tnt.corelib.state.TimeoutSafetyState;
 import com.hfrobots.tnt.corelib.state.ToggleState;
 import com.qualcomm.robotcore.eventloop.opmode.Disabled;
@@ -56,8 +65,40 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
 
     private StateMachine ballGrabberStateMachine;
 
+    // The shooter sequence and the collector toggles both run the collector, the command
+    // scheduler makes sure only one of them does at a time
+    private CommandScheduler commandScheduler;
+
+    private Subsystem shooterSubsystem;
+
+    private Subsystem collectorSubsystem;
+
+    private Command shootCommand;
+
     private CheesyDrive cheesyDrive;
 
+    // When set, cheesy drive runs on its own thread at a fixed rate, otherwise in loop()
+    protected boolean useControlThread = false;
+
+    private static final long DRIVE_CONTROL_PERIOD_MILLIS = 10;
+
+    // The driver's inputs for cheesy drive, published by loop() for the drive control thread
+    private CommandBuffer driveCommands;
+
+    private FixedRateControlThread driveControlThread;
+
+    // From the driver's input being seen in loop() to the motors being set
+    private final LatencyTracker cheesyDriveLatency = new LatencyTracker("cheesy drive");
+
+    private static final long TELEMETRY_PERIOD_MILLIS = 250;
+
+    // Runs the things loop() does not need to do every time through
+    private MultiRateScheduler scheduler;
+
+    private Telemetry.Item leftStickXItem;
+
+    private Telemetry.Item leftStickYItem;
+
     /*
      * Construct the class.
      *
@@ -121,11 +162,63 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
         };
 
         particleShooterStateMachine = createShooterStateMachineForTeleop();
+        particleShooterStateMachine.setCycleBudget(cycleBudget);
+
+        shooterSubsystem = new Subsystem("shooter") {
+            @Override
+            protected void stop() {
+                shooterOff();
+            }
+        };
+
+        collectorSubsystem = new Subsystem("collector") {
+            @Override
+            protected void stop() {
+                particleCollectorOff();
+            }
+        };
+
+        commandScheduler = new CommandScheduler();
+        commandScheduler.setDefaultCommand(collectorSubsystem, new Command(
+                new ParallelState("Collector toggles", telemetry, ParallelState.JoinPolicy.ALL,
+                        collectorToggleState, collectorReverseToggleState), collectorSubsystem));
+        shootCommand = new Command(new StateMachineState("Shoot particles", telemetry, particleShooterStateMachine),
+                shooterSubsystem, collectorSubsystem);
+
+        if (useControlThread) {
+            driveCommands = new CommandBuffer(6);
+            cheesyDrive = new CheesyDrive(telemetry, drive,
+                    driveCommands.relay(driversGamepad.getLeftStickY()), driveCommands.relay(driversGamepad.getRightStickX()),
+                    driveCommands.relay(driversGamepad.getAButton()), driveCommands.relay(directionFlip),
+                    driveCommands.relay(brakeNoBrake), driveCommands.relay(halfSpeed));
+
+            // Cheesy drive runs at a fixed rate, no matter how often loop() is called
+            driveControlThread = new FixedRateControlThread("drive control", DRIVE_CONTROL_PERIOD_MILLIS,
+                    TimeUnit.MILLISECONDS, new Runnable() {
+                @Override
+                public void run() {
+                    driveCommands.receive();
+                    cheesyDrive.handleDrive();
+                    cheesyDriveLatency.markOutput();
+                }
+            });
+        } else {
+            cheesyDrive = new CheesyDrive(telemetry, drive,
+                    driversGamepad.getLeftStickY(), driversGamepad.getRightStickX(),
+                    driversGamepad.getAButton(), directionFlip, brakeNoBrake, halfSpeed);
+        }
 
-        cheesyDrive = new CheesyDrive(telemetry, drive,
-                driversGamepad.getLeftStickY(), driversGamepad.getRightStickX(),
-                driversGamepad.getAButton(), directionFlip, brakeNoBrake, halfSpeed);
         ballGrabberStateMachine = createBallGrabberStateMachine();
+        ballGrabberStateMachine.setCycleBudget(cycleBudget);
+
+        scheduler = new MultiRateScheduler();
+        scheduler.setCycleBudget(cycleBudget);
+        scheduler.scheduleDiagnostics("telemetry", TELEMETRY_PERIOD_MILLIS, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                updateGamepadTelemetry();
+            }
+        });
     }
 
     @Override
@@ -134,11 +227,25 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
         logBatteryState("Teleop.start()");
         beaconPusherUnderColorSensor.setPosition(0);
         beaconPusherNoColorSensor.setPosition(0);
+
+        if (driveControlThread != null) {
+            driveControlThread.start();
+        }
     }
 
     @Override
     public void stop() {
         super.stop();
+
+        if (driveControlThread != null) {
+            driveControlThread.stop();
+        }
+
+        cheesyDriveLatency.logSummary();
+        commandScheduler.cancelAll();
+        particleShooterStateMachine.logProfile();
+        ballGrabberStateMachine.logProfile();
+        scheduler.logRunCounts();
         logBatteryState("Teleop.stop()");
     }
 
@@ -153,12 +260,15 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
     public void loop()
 
     {
+        cycleBudget.startCycle();
+        snapshotGamepads();
+
+        // control first, telemetry gets whatever time is left
         handleDrive();
-        handleCollector();
-        handleParticleShooter();
+        handleShooterAndCollector();
         handleBallGrabber();
         handleLift();
-        updateGamepadTelemetry();
+        scheduler.runDueTasks();
     }
 
     private void handleBallGrabber() {
@@ -166,24 +276,15 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
     }
 
     /**
-     * Runs the state machine for the particle shooter
+     * Starts the shooter sequence when the trigger is pressed, which takes the collector
+     * away from the collector toggles until it is done
      */
-    private void handleParticleShooter() {
-        // FIXME Figure out how to make these work together
-        //if (shooterTrigger.isPressed()) {
-        //    shooterOn();
-        //} else {
-        //    shooterOff();
-        //}
-        particleShooterStateMachine.doOneStateLoop();
-    }
+    private void handleShooterAndCollector() {
+        if (particleShooterBouncy.isPressed()) {
+            commandScheduler.schedule(shootCommand); // does nothing if already shooting
+        }
 
-    /**
-     * Runs the state machine for the collector mechanism
-     */
-    private void handleCollector() {
-        collectorToggleState = collectorToggleState.doStuffAndGetNextState();
-        collectorReverseToggleState = collectorReverseToggleState.doStuffAndGetNextState();
+        commandScheduler.run();
     }
 
     private boolean liftSafetyPressed = false; // only log once on each state transition
@@ -240,25 +341,33 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
         }
     }
 
+    /**
+     * Creates the shooter sequence, which runs once - until the trigger is released - each
+     * time the shoot command is scheduled
+     */
     protected StateMachine createShooterStateMachineForTeleop() {
         StateMachine shooterStateMachine = new StateMachine(telemetry);
+        shooterStateMachine.enableProfiling();
 
         State waitingForButtonPressState = new WaitForButton(particleShooterBouncy, telemetry);
         State waitingForButtonReleaseState = new WaitForButtonRelease(particleShooterBouncy, telemetry);
 
         addShooterStateMachine(shooterStateMachine, waitingForButtonPressState,
-                waitingForButtonReleaseState, new CollectorOffState(telemetry), true);
+                waitingForButtonReleaseState, new CollectorOffState(telemetry), false);
+        shooterStateMachine.compile();
 
         return shooterStateMachine;
     }
 
     protected StateMachine createBallGrabberStateMachine() {
         StateMachine ballGrabberStateMachine = new StateMachine(telemetry);
+        ballGrabberStateMachine.enableProfiling();
         ballGrabberStateMachine.addSequential(new WaitForGrabBallCommandState(telemetry));
         ballGrabberStateMachine.addSequential(new BallGrabServoState(telemetry)); // tilt the forks
         ballGrabberStateMachine.addSequential(new DelayState("wait for the squeeze!", telemetry, 300, TimeUnit.MILLISECONDS));
         ballGrabberStateMachine.addSequential(new LiftSlightlyUpState(telemetry)); // run the lift
         ballGrabberStateMachine.addSequential(newDoneState("Done grabbing the ball"));
+        ballGrabberStateMachine.compile();
 
         return ballGrabberStateMachine;
     }
@@ -396,12 +505,32 @@ public class VelocityVortexTeleop extends VelocityVortexHardware
     }
 
     private void handleDrive() {
-        cheesyDrive.handleDrive();
+        cheesyDriveLatency.markInput(driversGamepad);
+
+        if (driveControlThread != null) {
+            driveControlThread.checkNotFailed();
+            driveCommands.publish();
+        } else {
+            cheesyDrive.handleDrive();
+            cheesyDriveLatency.markOutput();
+        }
     }
 
+    /**
+     * Updates the gamepad telemetry, the items are retained so they stay on the driver's
+     * station between updates
+     */
     private void updateGamepadTelemetry() {
-        telemetry.addData ("06", "GP1 Left x: " + -driverLeftStickX.getPosition());
-        telemetry.addData ("07", "GP1 Left y: " + -driverLeftStickY.getPosition());
+        String leftStickX = "GP1 Left x: " + -driverLeftStickX.getPosition();
+        String leftStickY = "GP1 Left y: " + -driverLeftStickY.getPosition();
+
+        if (leftStickXItem == null) {
+            leftStickXItem = telemetry.addData("06", leftStickX).setRetained(true);
+            leftStickYItem = telemetry.addData("07", leftStickY).setRetained(true);
+        } else {
+            leftStickXItem.setValue(leftStickX);
+            leftStickYItem.setValue(leftStickY);
+        }
     }
 
 }
\ No newline at end of file
@@ -24,6 +24,7 @@ import android.util.Log;
 import com.hfrobots.tnt.corelib.Constants;
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
 import com.hfrobots.tnt.corelib.drive.Turn;
+import com.hfrobots.tnt.corelib.state.ChoiceState;
 import com.hfrobots.tnt.corelib.state.State;
 import com.qualcomm.hardware.lynx.LynxI2cColorRangeSensor;
 import com.qualcomm.robotcore.hardware.Servo;
@@ -40,6 +41,11 @@ public class JewelMechanism {
 
     private final static double SENSOR_DEPLOYED_POSITION = 0.345;
 
+    // Branches of the detect and turn state, in the order they are added
+    private final static int TURN_CW_BRANCH = 0;
+
+    private final static int TURN_CCW_BRANCH = 1;
+
     private final Servo sensorServo;
 
     private final LynxI2cColorRangeSensor jewelSensor;
@@ -70,8 +76,29 @@ public class JewelMechanism {
         return new JewelMechanismDeploySensorState("deploying sensor", telemetry);
     }
 
-    public JewelMechanismDetectAndTurn getDetectAndTurnState(Telemetry telemetry, Constants.Alliance alliance, MecanumDrive drive) {
-        return new JewelMechanismDetectAndTurn("detect and turn", telemetry, alliance,drive);
+    /**
+     * Returns a state which reads the jewel color and then turns to knock off the other
+     * alliance's jewel, or does nothing if the color can't be told. Both turns are built
+     * here, rather than once the color is known.
+     */
+    public ChoiceState getDetectAndTurnState(Telemetry telemetry, final Constants.Alliance alliance, MecanumDrive drive) {
+        ChoiceState detectAndTurnState = new ChoiceState("detect and turn", telemetry, new ChoiceState.Chooser() {
+            @Override
+            public int choose() {
+                Rotation directionToTurn = getTurnDirectionForDetectedJewel(alliance);
+
+                if (directionToTurn == null) {
+                    return ChoiceState.NEXT_STATE;
+                }
+
+                return directionToTurn.equals(Rotation.CW) ? TURN_CW_BRANCH : TURN_CCW_BRANCH;
+            }
+        });
+
+        detectAndTurnState.addBranch(new MecanumTimedTurnState("turn CW for jewel", telemetry, drive, Rotation.CW, 250));
+        detectAndTurnState.addBranch(new MecanumTimedTurnState("turn CCW for jewel", telemetry, drive, Rotation.CCW, 250));
+
+        return detectAndTurnState;
     }
 
     public Rotation getTurnDirectionForDetectedJewel(Constants.Alliance alliance) {
@@ -152,43 +179,4 @@ public class JewelMechanism {
         }
     }
 
-    class JewelMechanismDetectAndTurn extends State {
-        Constants.Alliance alliance;
-        boolean detected = false;
-        MecanumTimedTurnState turnState = null;
-        final MecanumDrive drive;
-
-        JewelMechanismDetectAndTurn(String name, Telemetry telemetry, Constants.Alliance alliance, MecanumDrive drive) {
-            super(name, telemetry);
-            this.alliance = alliance;
-            this.drive = drive;
-        }
-
-        @Override
-        public void resetToStart() {
-
-        }
-
-        @Override
-        public void liveConfigure(DebouncedGamepadButtons buttons) {
-
-        }
-
-        public State doStuffAndGetNextState() {
-            if (!detected) {
-                Rotation directionToTurn = getTurnDirectionForDetectedJewel(this.alliance);
-                detected = true;
-
-                if (directionToTurn == null) {
-                    return nextState;
-                }
-
-                turnState = new MecanumTimedTurnState("turn for jewel", telemetry, drive, directionToTurn, 250);
-                turnState.setNextState(nextState);
-            }
-
-            return turnState.doStuffAndGetNextState();
-        }
-    }
-
 }
@@ -162,7 +162,24 @@ public class MecanumDrive {
 
     private final static double MAX_MOTOR_OUTPUT = 1.0;
 
+    /**
+     * Returns the gyroAngle that makes driveCartesian() drive field-centric, given the IMU's
+     * heading and the heading that is "forward" on the field (both counter-clockwise positive)
+     */
+    public static double fieldCentricGyroAngle(double headingDegrees, double fieldForwardHeadingDegrees) {
+        // driveCartesian() rotates the powers by the opposite sense to the IMU's heading
+        return -(headingDegrees - fieldForwardHeadingDegrees);
+    }
+
     public void driveCartesian(double xPower, double yPower, double rotationPower, boolean inverted, double gyroAngle)
+    {
+        normalizeAndSetMotorPower(cartesianWheelSpeeds(xPower, yPower, rotationPower, inverted, gyroAngle));
+    }
+
+    /**
+     * Returns the wheel speeds, before they are normalized, that driveCartesian() sets
+     */
+    static WheelSpeeds cartesianWheelSpeeds(double xPower, double yPower, double rotationPower, boolean inverted, double gyroAngle)
     {
         xPower = Range.clip(xPower, -1.0, 1.0);
         yPower = Range.clip(yPower, -1.0, 1.0);
@@ -178,8 +195,11 @@ public class MecanumDrive {
 
         // Lauren - this formula should look familiar - do you recognize it?
 
-        xPower = xPower * cosA - yPower * sinA;
-        yPower = xPower * sinA + yPower * cosA;
+        // both from the un-rotated powers, or field-centric driving curves off course
+        double rotatedX = xPower * cosA - yPower * sinA;
+        double rotatedY = xPower * sinA + yPower * cosA;
+        xPower = rotatedX;
+        yPower = rotatedY;
 
         //if (gyroAssistEnabled)
         //{
@@ -187,11 +207,10 @@ public class MecanumDrive {
         //}
 
         // leftFront, rightFront, leftRear, rightRear
-        WheelSpeeds wheelSpeeds = new WheelSpeeds(xPower + yPower + rotationPower,
+        return new WheelSpeeds(xPower + yPower + rotationPower,
                 -xPower + yPower - rotationPower,
                 -xPower + yPower + rotationPower,
                 xPower + yPower - rotationPower);
-        normalizeAndSetMotorPower(wheelSpeeds);
     }
 
     protected void normalizeAndSetMotorPower(WheelSpeeds wheelSpeeds) {
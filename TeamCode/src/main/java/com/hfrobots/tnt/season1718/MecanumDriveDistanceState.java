@@ -22,8 +22,12 @@ package com.hfrobots.tnt.season1718;
 import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+import com.hfrobots.tnt.corelib.state.EstimatedDuration;
+import com.hfrobots.tnt.corelib.state.MotionModel;
+import com.hfrobots.tnt.corelib.state.Rewindable;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.TimeoutSafetyState;
+import com.hfrobots.tnt.corelib.state.TransitionJournal;
 import com.qualcomm.robotcore.hardware.DcMotor;
 import com.qualcomm.robotcore.hardware.DcMotorSimple;
 
@@ -31,7 +35,7 @@ import org.firstinspires.ftc.robotcore.external.Telemetry;
 
 import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
 
-public class MecanumDriveDistanceState extends TimeoutSafetyState {
+public class MecanumDriveDistanceState extends TimeoutSafetyState implements EstimatedDuration, Rewindable {
     private boolean initialized = false;
 
     private final MecanumDrive mecanumDrive;
@@ -95,6 +99,7 @@ public class MecanumDriveDistanceState extends TimeoutSafetyState {
                 telemetry.addData("END", "Reached target position");
 
                 resetMotorsToOriginalState();
+                setTransitionReason(TransitionJournal.REASON_TARGET_REACHED);
                 return nextState;
             }
         }
@@ -166,10 +171,34 @@ public class MecanumDriveDistanceState extends TimeoutSafetyState {
         mecanumDrive.leftRearDriveMotor.setDirection(DcMotorSimple.Direction.REVERSE);
     }
 
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return motionModel.driveNanos(inchesToDrive, powerLevel);
+    }
+
     @Override
     public void resetToStart() {
         super.resetToStart();
-        initialize();
+        initialized = false; // the drive starts when this state is next run
+    }
+
+    @Override
+    public int getMementoSize() {
+        return 2;
+    }
+
+    @Override
+    public void saveMemento(long[] memento) {
+        // the (possibly live-configured) distance and power, everything else starts over
+        memento[0] = Double.doubleToLongBits(inchesToDrive);
+        memento[1] = Double.doubleToLongBits(powerLevel);
+    }
+
+    @Override
+    public void restoreMemento(long[] memento) {
+        resetToStart();
+        inchesToDrive = Double.longBitsToDouble(memento[0]);
+        powerLevel = Double.longBitsToDouble(memento[1]);
     }
 
     @Override
@@ -24,6 +24,8 @@ import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
 import com.hfrobots.tnt.corelib.drive.Turn;
+import com.hfrobots.tnt.corelib.state.EstimatedDuration;
+import com.hfrobots.tnt.corelib.state.MotionModel;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.TimeoutSafetyState;
 import com.qualcomm.hardware.lynx.LynxEmbeddedIMU;
@@ -37,7 +39,7 @@ import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
 /**
  * Proof of concept of an IMU-based turn for the Mecanum drive
  */
-public class MecanumGyroTurnState extends TimeoutSafetyState
+public class MecanumGyroTurnState extends TimeoutSafetyState implements EstimatedDuration
 {
     private static final double     HEADING_THRESHOLD       = 1 ;      // As tight as we can make it with an integer gyro
     private double     P_TURN_COEFF            = 0.03;     // Larger is more responsive, but also less stable
@@ -61,8 +63,6 @@ public class MecanumGyroTurnState extends TimeoutSafetyState
 
     private final LynxEmbeddedIMU imu;
 
-    private long lastCycleTimestamp = 0;
-
     private boolean doingTurn = false;
 
     public MecanumGyroTurnState(String name, Telemetry telemetry, MecanumDrive mecanumDrive, LynxEmbeddedIMU imu, Turn turn, long safetyTimeoutMillis) {
@@ -87,13 +87,6 @@ public class MecanumGyroTurnState extends TimeoutSafetyState
 
         reachedTarget = onHeading(targetHeading);
 
-        if (lastCycleTimestamp != 0) {
-            long elapsedCycleTimeMs = System.currentTimeMillis() - lastCycleTimestamp;
-            Log.d(LOG_TAG, "Cycle time ms: " + elapsedCycleTimeMs);
-        }
-
-        lastCycleTimestamp = System.currentTimeMillis();
-
         if (reachedTarget) {
             Log.d(LOG_TAG, "Gyro turn heading reached - stopping drive");
 
@@ -122,6 +115,11 @@ public class MecanumGyroTurnState extends TimeoutSafetyState
         initialized = true;
     }
 
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return motionModel.turnNanos(turn.getDegrees(), MAX_POWER);
+    }
+
     @Override
     public void resetToStart() {
         super.resetToStart();
@@ -24,6 +24,8 @@ import android.util.Log;
 
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
 import com.hfrobots.tnt.corelib.drive.Turn;
+import com.hfrobots.tnt.corelib.state.EstimatedDuration;
+import com.hfrobots.tnt.corelib.state.MotionModel;
 import com.hfrobots.tnt.corelib.state.State;
 import com.hfrobots.tnt.corelib.state.TimeoutSafetyState;
 import com.qualcomm.hardware.lynx.LynxEmbeddedIMU;
@@ -33,12 +35,14 @@ import com.qualcomm.robotcore.util.Range;
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 import org.firstinspires.ftc.robotcore.external.navigation.Rotation;
 
+import java.util.concurrent.TimeUnit;
+
 import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
 
 /**
  * Proof of concept of an time-based turn for the Mecanum drive
  */
-public class MecanumTimedTurnState extends TimeoutSafetyState
+public class MecanumTimedTurnState extends TimeoutSafetyState implements EstimatedDuration
 {
     private static final double POWER_LEVEL = 0.2;
 
@@ -90,10 +94,15 @@ public class MecanumTimedTurnState extends TimeoutSafetyState
         initialized = true;
     }
 
+    @Override
+    public long estimateDurationNanos(MotionModel motionModel) {
+        return TimeUnit.MILLISECONDS.toNanos(safetyTimeoutMillis); // turns until timed out
+    }
+
     @Override
     public void resetToStart() {
         super.resetToStart();
-        initialize();
+        initialized = false; // the turn starts when this state is next run
     }
 
     @Override
@@ -22,11 +22,19 @@ package com.hfrobots.tnt.season1718;
 import android.util.Log;
 
 import com.hfrobots.tnt.corelib.Constants;
+import com.hfrobots.tnt.corelib.control.NinjaGamePad;
 import com.hfrobots.tnt.corelib.drive.Turn;
-import com.hfrobots.tnt.corelib.state.State;
+import com.hfrobots.tnt.corelib.state.RouteDurationEstimator;
+import com.hfrobots.tnt.corelib.state.StateMachine;
 import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
 
 import org.firstinspires.ftc.robotcore.external.navigation.Rotation;
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 @Autonomous(name="RR Auto")
 @SuppressWarnings("unused")
@@ -34,7 +42,7 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
 
 
     private static final String LOG_TAG = "TNT Auto";
-    private State currentState = null;
+    private StateMachine stateMachine = null;
 
     // The routes our robot knows how to do
     private enum Routes { LEFT_STONE("Left stone"),
@@ -65,10 +73,21 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
 
     private int initialDelaySeconds = 0;
 
+    private static final long AUTONOMOUS_PERIOD_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    // Pull these from the phone and read them with TransitionJournalReader
+    private static final File JOURNAL_FOLDER = new File(AppUtil.FIRST_FOLDER, "journals");
+
+    private final RouteDurationEstimator routeDurationEstimator = new RouteDurationEstimator(MOTION_MODEL);
+
+    // Estimated time for the state machine that is built (including the start delay)
+    private long builtRouteEstimatedNanos;
+
     @Override
     public void init() {
         super.init();
         setDefaults();
+        logRoutesFastestFirst();
     }
 
     @Override
@@ -80,6 +99,12 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
     @Override
     public void stop() {
         super.stop();
+
+        if (stateMachine != null) {
+            stateMachine.logProfile();
+            stateMachine.writeJournal(new File(JOURNAL_FOLDER, "rr-auto-" + System.currentTimeMillis() + ".journal"));
+        }
+
         logBatteryState("Auto.stop()");
     }
 
@@ -89,6 +114,14 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
         initialDelaySeconds = 0;
     }
 
+    // What the current state machine was built for, it is re-built during init_loop()
+    // only when the selection changes, so that loop() doesn't have to
+    private Routes builtRoute = null;
+
+    private Constants.Alliance builtAlliance = null;
+
+    private int builtDelaySeconds = -1;
+
     private boolean configLocked = false;
 
     // Called repeatedly after init button has been pressed and init() has completed (we think)
@@ -99,14 +132,19 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
             return;
         }
 
+        snapshotGamepads();
+        driverGestures.update();
+
+        // Holding the left stick button locks the config, pressing the right stick button
+        // unlocks (as it always has)
         if (!configLocked) {
             doAutoConfig();
 
-            if (lockButton.getRise()) {
+            if (driverGestures.getLongPress(NinjaGamePad.LEFT_STICK_BUTTON)) {
                 configLocked = true;
             }
         } else {
-            if (unlockButton.getRise()) {
+            if (driverGestures.getRise(NinjaGamePad.RIGHT_STICK_BUTTON)) {
                 configLocked = false;
             }
         }
@@ -114,15 +152,22 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
         if (configLocked) {
             telemetry.addData("00", "LOCKED: Press Rt stick unlock");
         } else {
-            telemetry.addData("00", "UNLOCKED: Press Lt stick lock");
+            telemetry.addData("00", "UNLOCKED: Hold Lt stick to lock");
         }
 
         handleGlyphGripper();
 
+        maybeRebuildSelectedStateMachine();
+
         telemetry.addData("01", "Alliance: %s", currentAlliance);
-        telemetry.addData("02", "Route: %s", possibleRoutes[selectedRoutesIndex].getDescription());
+        telemetry.addData("02", "Route: %s (~%.1f sec)", possibleRoutes[selectedRoutesIndex].getDescription(),
+                builtRouteEstimatedNanos / 1000000000.0);
         telemetry.addData("03", "Delay %d sec", initialDelaySeconds);
 
+        if (builtRouteEstimatedNanos > AUTONOMOUS_PERIOD_NANOS) {
+            telemetry.addData("04", "** ROUTE + DELAY WILL NOT FINISH IN 30 SEC **");
+        }
+
         updateTelemetry(telemetry);
     }
 
@@ -165,47 +210,34 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
         }
     }
 
+    private void maybeRebuildSelectedStateMachine() {
+        Routes selectedRoute = possibleRoutes[selectedRoutesIndex];
+
+        if (stateMachine == null
+                || selectedRoute != builtRoute
+                || currentAlliance != builtAlliance
+                || initialDelaySeconds != builtDelaySeconds) {
+            long startBuildNanos = System.nanoTime();
+
+            setupSelectedStateMachine();
+
+            Log.d(LOG_TAG, String.format("Built route %s for %s in %.1f ms", selectedRoute,
+                    currentAlliance, (System.nanoTime() - startBuildNanos) / 1000000.0));
+        }
+    }
+
     @Override
     public void loop() {
         try {
-            if (currentState == null) {
-                /* We have not configured the state machine yet, do so from the options
-                 selected during init_loop() */
-
-                final State selectedState;
-                Routes selectedRoute = possibleRoutes[selectedRoutesIndex];
-
-                switch (selectedRoute) {
-                    case LEFT_STONE:
-                        selectedState = leftStoneStateMachine();
-                        break;
-                    case RIGHT_STONE:
-                        selectedState = rightStoneStateMachine();
-                        break;
-                    //case RIGHT_STONE_RIGHT_CRYPTO:
-                    //    selectedState = rightStoneRightCryptoStateMachine();
-                    //    break;
-                    default:
-                        selectedState = newDoneState("Default done");
-                }
-
-                if (initialDelaySeconds != 0) {
-                    currentState = newDelayState();
-                    currentState.setNextState(selectedState);
-                } else {
-                    currentState = selectedState;
-                }
-            }
-
-            State nextState = currentState.doStuffAndGetNextState();
+            cycleBudget.startCycle();
+            snapshotGamepads();
 
-            if (nextState != currentState) {
-                // We've changed states alert the driving team, log for post-match analysis
-                telemetry.addData("00-State", "From %s to %s", currentState, nextState);
-                Log.d(LOG_TAG, String.format("State transition from %s to %s", currentState, nextState));
+            if (stateMachine == null) {
+                setupSelectedStateMachine();
             }
 
-            currentState = nextState;
+            stateMachine.doOneStateLoop();
+
             telemetry.update(); // send all telemetry to the drivers' station
         } catch (Throwable t) {
             // Better logging than the FTC SDK provides :(
@@ -222,12 +254,67 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
         }
     }
 
+    protected void setupSelectedStateMachine() {
+        /* Configure the state machine from the options selected during init_loop(),
+         normally called from init_loop() so the route is ready when loop() starts */
+
+        Routes selectedRoute = possibleRoutes[selectedRoutesIndex];
+
+        stateMachine = buildRoute(selectedRoute);
+
+        if (initialDelaySeconds != 0) {
+            stateMachine.addStartDelay(initialDelaySeconds);
+        }
+
+        stateMachine.compile();
+        // the route carries on once loops are back within budget, so one stalled I2C read
+        // doesn't throw away the rest of autonomous
+        stateMachine.setLoopWatchdog(newLoopWatchdog(), StateMachine.DEFAULT_SAFE_STOP_RECOVERY_LOOPS);
+        stateMachine.setCycleBudget(cycleBudget);
+        builtRouteEstimatedNanos = routeDurationEstimator.estimateNanos(stateMachine);
+
+        builtRoute = selectedRoute;
+        builtAlliance = currentAlliance;
+        builtDelaySeconds = initialDelaySeconds;
+    }
+
+    private StateMachine buildRoute(Routes route) {
+        StateMachine routeStateMachine = new StateMachine(telemetry);
+        routeStateMachine.enableProfiling();
+        routeStateMachine.enableJournal();
+
+        switch (route) {
+            case LEFT_STONE:
+                addLeftStoneStates(routeStateMachine);
+                break;
+            case RIGHT_STONE:
+                addRightStoneStates(routeStateMachine);
+                break;
+            //case RIGHT_STONE_RIGHT_CRYPTO:
+            //    addRightStoneRightCryptoStates(routeStateMachine);
+            //    break;
+            default:
+                routeStateMachine.addSequential(newDoneState("Default done"));
+        }
+
+        return routeStateMachine;
+    }
+
     /**
-     * Creates an instance of the "done" state which stops the robot and should be the
-     * "end" state of all of our robot's state machines
+     * Builds every route (without a start delay) to log them from fastest to slowest,
+     * according to MOTION_MODEL
      */
-    protected State newDelayState() {
-        return newDelayState("start delay", initialDelaySeconds);
+    private void logRoutesFastestFirst() {
+        Map<String, Long> estimatedNanosByRoute = new HashMap<>();
+
+        for (Routes route : possibleRoutes) {
+            estimatedNanosByRoute.put(route.getDescription(), routeDurationEstimator.estimateNanos(buildRoute(route)));
+        }
+
+        for (String routeName : RouteDurationEstimator.rankFastestFirst(estimatedNanosByRoute)) {
+            Log.d(LOG_TAG, String.format("Route %s, estimated %.1f sec", routeName,
+                    estimatedNanosByRoute.get(routeName) / 1000000000.0));
+        }
     }
 
     /**
@@ -243,7 +330,7 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
         return origTurn.invert();
     }
 
-    private State leftStoneStateMachine() {
+    private void addLeftStoneStates(StateMachine stateMachine) {
         final JewelMechanism jewelMechUsed;
 
         if (currentAlliance.equals(Constants.Alliance.BLUE)) {
@@ -252,26 +339,19 @@ public class RelicRecoveryAutonomous extends RelicRecoveryHardware {
             jewelMechUsed = redAllianceJewelMech;
         }
 
-        JewelMechanism.JewelMechanismDeploySensorState firstState = jewelMechUsed.getDeploySensorState(telemetry);
-        State waitToDeploy = newDelayState("waiting for deploy", 2);
-        firstState.setNextState(waitToDeploy);
-        JewelMechanism.JewelMechanismDetectAndTurn detectAndTurnState
-                = jewelMechUsed.getDetectAndTurnState(telemetry, currentAlliance, mecanumDrive);
-        waitToDeploy.setNextState(detectAndTurnState);
-        JewelMechanism.JewelMechanismStowSensorState stowSensorState = jewelMechUsed.getStowSensorState(telemetry);
-        detectAndTurnState.setNextState(stowSensorState);
-        State waitToStow = newDelayState("waiting for stow", 2);
-        stowSensorState.setNextState(waitToStow);
-        waitToStow.setNextState(newDoneState("Done"));
-
-        return firstState;
+        stateMachine.addSequential(jewelMechUsed.getDeploySensorState(telemetry));
+        stateMachine.addSequential(newDelayState("waiting for deploy", 2));
+        stateMachine.addSequential(jewelMechUsed.getDetectAndTurnState(telemetry, currentAlliance, mecanumDrive));
+        stateMachine.addSequential(jewelMechUsed.getStowSensorState(telemetry));
+        stateMachine.addSequential(newDelayState("waiting for stow", 2));
+        stateMachine.addSequential(newDoneState("Done"));
     }
 
-    private State rightStoneStateMachine() {
-        return leftStoneStateMachine(); /* no different atm */
+    private void addRightStoneStates(StateMachine stateMachine) {
+        addLeftStoneStates(stateMachine); /* no different atm */
     }
 
-    private State rightStoneRightCryptoStateMachine() {
-        return newDoneState("Right Stone, Right Crypto - TODO");
+    private void addRightStoneRightCryptoStates(StateMachine stateMachine) {
+        stateMachine.addSequential(newDoneState("Right Stone, Right Crypto - TODO"));
     }
 }
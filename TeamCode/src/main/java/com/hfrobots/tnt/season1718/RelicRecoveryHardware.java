@@ -24,12 +24,20 @@ import android.util.Log;
 import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
 
 import com.hfrobots.tnt.corelib.Constants;
+import com.hfrobots.tnt.corelib.control.ButtonGestures;
 import com.hfrobots.tnt.corelib.control.DebouncedButton;
 import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
+import com.hfrobots.tnt.corelib.control.LatencyTracker;
 import com.hfrobots.tnt.corelib.control.NinjaGamePad;
 import com.hfrobots.tnt.corelib.control.RangeInput;
+import com.hfrobots.tnt.corelib.control.ResponseCurve;
 import com.hfrobots.tnt.corelib.drive.ExtendedDcMotor;
 import com.hfrobots.tnt.corelib.drive.NinjaMotor;
+import com.hfrobots.tnt.corelib.sensors.CachedHeading;
+import com.hfrobots.tnt.corelib.state.CycleBudget;
+import com.hfrobots.tnt.corelib.state.DelayState;
+import com.hfrobots.tnt.corelib.state.LoopWatchdog;
+import com.hfrobots.tnt.corelib.state.MotionModel;
 import com.hfrobots.tnt.corelib.state.State;
 import com.qualcomm.hardware.bosch.BNO055IMU;
 import com.qualcomm.hardware.lynx.LynxEmbeddedIMU;
@@ -46,9 +54,28 @@ import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
 
 public abstract class RelicRecoveryHardware extends OpMode {
-    protected float throttleGain = 0.3F;
-    protected float throttleExponent = 3; // MUST BE AN ODD NUMBER!
-    protected float throttleDeadband = 0;
+    // Rough numbers for this robot (mecanum, NeveRest 40s, 4" wheels), used to estimate how long
+    // autonomous routes take - measure and update if the drive train changes
+    protected static final MotionModel MOTION_MODEL = new MotionModel(
+            36 /* in/sec */, 48 /* in/sec^2 */, 200 /* deg/sec */, 400 /* deg/sec^2 */, 20 /* ms loop */);
+
+    // Loops normally take ~20 ms, a few in a row this slow means the bus is stuck
+    private static final long LOOP_BUDGET_MILLIS = 100;
+
+    private static final int MAX_CONSECUTIVE_LOOP_OVERRUNS = 3;
+
+    // Past this point in a loop, telemetry and diagnostic logging wait for a later loop
+    private static final long CONTROL_BUDGET_MILLIS = 15;
+
+    /** Subclasses call startCycle() at the top of loop() */
+    protected final CycleBudget cycleBudget = new CycleBudget(CONTROL_BUDGET_MILLIS, TimeUnit.MILLISECONDS);
+
+    // How long the driver's inputs take to reach the motors, logged from teleop's stop()
+    protected final LatencyTracker mecanumDriveLatency = new LatencyTracker("mecanum drive");
+
+    protected final LatencyTracker glyphGripperLatency = new LatencyTracker("glyph gripper");
+
+    protected ResponseCurve throttleCurve = ResponseCurve.DRIVE;
     /**
      * Indicate whether a message is a available to the class user.
      */
@@ -76,6 +103,9 @@ public abstract class RelicRecoveryHardware extends OpMode {
 
     protected LynxEmbeddedIMU imu;
 
+    /** The IMU's heading, read off the control path - null when there's no IMU */
+    protected CachedHeading cachedHeading;
+
     protected VoltageSensor voltageSensor;
 
     protected RangeInput driverLeftStickX;
@@ -102,9 +132,8 @@ public abstract class RelicRecoveryHardware extends OpMode {
 
     protected DebouncedButton driverLeftBumper;
 
-    protected DebouncedButton lockButton;
-
-    protected DebouncedButton unlockButton;
+    /** Long-press, double-tap and chord detection for the driver's gamepad */
+    protected ButtonGestures driverGestures;
 
     // Glyph hardware/sensors
 
@@ -257,11 +286,21 @@ public abstract class RelicRecoveryHardware extends OpMode {
             //parameters.accelerationIntegrationAlgorithm = new NaiveAccelerationIntegrator();
             imu.initialize(parameters);
             imu.startAccelerationIntegration(null, null, 50); // not started by default?
+
+            // Started by OpModes that need the heading every loop, the read blocks for several ms
+            cachedHeading = new CachedHeading("imu heading", 20, TimeUnit.MILLISECONDS, new CachedHeading.Source() {
+                @Override
+                public float readHeadingDegrees() {
+                    // First angle is heading, second is roll, third is pitch
+                    return imu.getAngularOrientation().firstAngle;
+                }
+            });
         } catch (Exception ex) {
             appendWarningMessage("imu");
             Log.e(LOG_TAG, ex.getLocalizedMessage());
 
             imu = null;
+            cachedHeading = null;
         }
     }
 
@@ -356,6 +395,19 @@ public abstract class RelicRecoveryHardware extends OpMode {
         Log.d("VV", String.format("Robot battery voltage %5.2f at method %s()",voltageSensor.getVoltage(), opModeMethod));
     }
 
+    /**
+     * Creates a watchdog which stops the drive motors when loops are too slow for too long
+     */
+    protected LoopWatchdog newLoopWatchdog() {
+        return new LoopWatchdog(LOOP_BUDGET_MILLIS, TimeUnit.MILLISECONDS, MAX_CONSECUTIVE_LOOP_OVERRUNS,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        mecanumDrive.stopAllDriveMotors();
+                    }
+                });
+    }
+
     /**
      * Creates an instance of the "done" state which stops the robot and should be the
      * "end" state of all of our robot's state machines
@@ -388,39 +440,7 @@ public abstract class RelicRecoveryHardware extends OpMode {
     }
 
     protected State newDelayState(String name, final int numberOfSeconds) {
-        return new State(name, telemetry) {
-
-            private long startTime = 0;
-            private long thresholdTimeMs = TimeUnit.SECONDS.toMillis(numberOfSeconds);
-
-            @Override
-            public void resetToStart() {
-                startTime = 0;
-            }
-
-            @Override
-            public void liveConfigure(DebouncedGamepadButtons buttons) {
-
-            }
-
-            @Override
-            public State doStuffAndGetNextState() {
-                if (startTime == 0) {
-                    startTime = System.currentTimeMillis();
-                    return this;
-                }
-
-                long now = System.currentTimeMillis();
-                long elapsedMs = now - startTime;
-
-                if (elapsedMs > thresholdTimeMs) {
-                    return nextState;
-                }
-
-                telemetry.addData("04", "Delay: %d of %d ms", elapsedMs, thresholdTimeMs);
-                return this;
-            }
-        };
+        return new DelayState(name, telemetry, numberOfSeconds);
     }
 
     private void setupOperatorControls() {
@@ -433,6 +453,15 @@ public abstract class RelicRecoveryHardware extends OpMode {
         liftControl = operatorsGamepad.getLeftStickY();
     }
 
+    /**
+     * Takes this loop's snapshot of both gamepads, call at the top of loop() so that every
+     * input read during the loop agrees
+     */
+    protected void snapshotGamepads() {
+        driversGamepad.snapshot();
+        operatorsGamepad.snapshot();
+    }
+
     private void setupDriverControls() {
         driversGamepad = new NinjaGamePad(gamepad1);
         driverLeftStickX = driversGamepad.getLeftStickX();
@@ -448,11 +477,12 @@ public abstract class RelicRecoveryHardware extends OpMode {
         driverYYellowButton = new DebouncedButton(driversGamepad.getYButton());
         driverLeftBumper = new DebouncedButton(driversGamepad.getLeftBumper());
         driverRightBumper = new DebouncedButton(driversGamepad.getRightBumper());
-        lockButton = new DebouncedButton(driversGamepad.getLeftStickButton());
-        unlockButton = new DebouncedButton(driversGamepad.getRightStickButton());
+        driverGestures = new ButtonGestures(driversGamepad);
     }
 
     protected void handleGlyphGripper() {
+        glyphGripperLatency.markInput(operatorsGamepad);
+
         //Handle Grippers
         if (toggleBottomGlyphGripper.getRise()) {
             bottomGlyphClosed = ! bottomGlyphClosed;
@@ -509,11 +539,11 @@ public abstract class RelicRecoveryHardware extends OpMode {
         } else {
             glyphMechanism.lift.stop();
         }
+
+        glyphGripperLatency.markOutput();
     }
 
     double scaleThrottleValue(double unscaledPower) {
-        return (-1 * throttleDeadband) + (1 - throttleDeadband)
-                * (throttleGain * Math.pow(unscaledPower, throttleExponent)
-                + (1 - throttleGain) * unscaledPower);
+        return throttleCurve.shape(unscaledPower);
     }
 }
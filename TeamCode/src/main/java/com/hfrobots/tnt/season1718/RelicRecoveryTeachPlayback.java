@@ -0,0 +1,125 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.season1718;
+
+import android.util.Log;
+
+import com.hfrobots.tnt.corelib.control.GamepadPlayback;
+import com.hfrobots.tnt.corelib.control.NinjaGamePad;
+import com.qualcomm.robotcore.eventloop.opmode.Autonomous;
+
+import java.io.File;
+import java.io.IOException;
+
+import static com.hfrobots.tnt.corelib.Constants.LOG_TAG;
+
+/**
+ * "Teach mode" - drives the robot by playing back the most recent teleop session's gamepads
+ * through the teleop's own controls, so a driver can show the robot a path rather than
+ * program it.
+ */
+@Autonomous(name="RR Teach Playback")
+@SuppressWarnings("unused")
+public class RelicRecoveryTeachPlayback extends RelicRecoveryTeleop {
+    private static final float[] NEUTRAL_AXES = new float[NinjaGamePad.NUM_AXES];
+
+    private GamepadPlayback playback;
+
+    private NinjaGamePad[] playedGamepads;
+
+    private long playbackStartNanos;
+
+    public RelicRecoveryTeachPlayback() {
+        recordGamepads = false;
+    }
+
+    @Override
+    public void init() {
+        super.init();
+
+        playedGamepads = new NinjaGamePad[] {driversGamepad, operatorsGamepad};
+        File recording = findNewestRecording();
+
+        if (recording == null) {
+            appendWarningMessage("No gamepad recordings in " + RECORDING_FOLDER);
+
+            return;
+        }
+
+        try {
+            playback = GamepadPlayback.load(recording);
+        } catch (IOException ioe) {
+            Log.e(LOG_TAG, "Could not load gamepad recording " + recording, ioe);
+            appendWarningMessage("Could not load " + recording.getName());
+
+            return;
+        }
+
+        if (playback.getNumGamepads() != playedGamepads.length) {
+            appendWarningMessage(recording.getName() + " is not a teleop recording");
+            playback = null;
+
+            return;
+        }
+
+        Log.i(LOG_TAG, "Playing back " + recording + ", " + playback.getDurationNanos() / 1000000 + " ms");
+        telemetry.addData("01", "Playing back " + recording.getName());
+    }
+
+    @Override
+    public void start() {
+        super.start();
+        playbackStartNanos = System.nanoTime();
+    }
+
+    /**
+     * Takes this loop's gamepad snapshots from the recording, rather than the drivers
+     */
+    @Override
+    protected void snapshotGamepads() {
+        if (playback == null) {
+            for (NinjaGamePad gamepad : playedGamepads) {
+                gamepad.setSnapshot(0, NEUTRAL_AXES, 0);
+            }
+
+            return;
+        }
+
+        playback.playInto(System.nanoTime() - playbackStartNanos, playedGamepads);
+    }
+
+    private static File findNewestRecording() {
+        File[] files = RECORDING_FOLDER.listFiles();
+        File newest = null;
+
+        if (files == null) {
+            return null;
+        }
+
+        for (File file : files) {
+            if (file.getName().endsWith(RECORDING_EXTENSION)
+                    && (newest == null || file.lastModified() > newest.lastModified())) {
+                newest = file;
+            }
+        }
+
+        return newest;
+    }
+}
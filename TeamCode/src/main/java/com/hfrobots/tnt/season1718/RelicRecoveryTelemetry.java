@@ -19,18 +19,30 @@
 
 package com.hfrobots.tnt.season1718;
 
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
 public abstract class RelicRecoveryTelemetry extends RelicRecoveryHardware {
 
+    // Retained, so they stay on the driver's station when updated less often than every loop
+    private Telemetry.Item warningItem;
+
+    private Telemetry.Item imuItem;
+
+    private Telemetry.Item limitsItem;
+
+    private Telemetry.Item[] gamepadItems = new Telemetry.Item[4];
+
     protected void updatePriorityTelemetry(String message) {
         telemetry.addData("00", message);
     }
 
     /**
-     * Update the telemetry with current values from the hardware.
+     * Update the telemetry with current values from the hardware. The values stay on the
+     * driver's station until the next update, so this need not be called every loop.
      */
     public void updateTelemetry() {
         if (wasWarningGenerated()) {
-            setFirstMessage(getWarningMessage());
+            warningItem = setRetainedItem(warningItem, "00", getWarningMessage());
         }
 
         //
@@ -39,11 +51,14 @@ public abstract class RelicRecoveryTelemetry extends RelicRecoveryHardware {
 
         // First angle is heading, second is roll, third is pitch
 
-        if (imu != null) {
-            telemetry.addData("imu", "h: " + imu.getAngularOrientation().firstAngle);
+        if (cachedHeading != null && cachedHeading.hasHeading()) {
+            // already read off the control path, don't block on the IMU again
+            imuItem = setRetainedItem(imuItem, "imu", "h: " + cachedHeading.getHeadingDegrees());
+        } else if (imu != null) {
+            imuItem = setRetainedItem(imuItem, "imu", "h: " + imu.getAngularOrientation().firstAngle);
         }
 
-        telemetry.addData("limits", "b:" + glyphLiftBottomLimit.getState() + " t:" + glyphLiftTopLimit.getState() + " cw:" + uprightGlyphLimit.getState() + " ccw:" + invertedGlyphLimit.getState());
+        limitsItem = setRetainedItem(limitsItem, "limits", "b:" + glyphLiftBottomLimit.getState() + " t:" + glyphLiftTopLimit.getState() + " cw:" + uprightGlyphLimit.getState() + " ccw:" + invertedGlyphLimit.getState());
         //telemetry.addData("rC", "%d %d %d %d %f", rightColorRange.red(), rightColorRange.green(), rightColorRange.blue(), rightColorRange.alpha(), rightColorRange.getRawLightDetected());
         //telemetry.addData("lC", "%d %d %d %d %f", leftColorRange.red(), leftColorRange.green(), leftColorRange.blue(), leftColorRange.alpha(), leftColorRange.getRawLightDetected());
 
@@ -54,10 +69,24 @@ public abstract class RelicRecoveryTelemetry extends RelicRecoveryHardware {
         //
         // Send telemetry data concerning gamepads to the driver station.
         //
-        telemetry.addData ("06", "GP1 Left x: " + -gamepad1.left_stick_x);
-        telemetry.addData ("07", "GP1 Left y: " + -gamepad1.left_stick_y);
-        telemetry.addData ("08", "GP1 Right x: " + -gamepad1.right_stick_x);
-        telemetry.addData ("09", "GP1 Right y: " + -gamepad1.right_stick_y);
+        gamepadItems[0] = setRetainedItem(gamepadItems[0], "06", "GP1 Left x: " + -gamepad1.left_stick_x);
+        gamepadItems[1] = setRetainedItem(gamepadItems[1], "07", "GP1 Left y: " + -gamepad1.left_stick_y);
+        gamepadItems[2] = setRetainedItem(gamepadItems[2], "08", "GP1 Right x: " + -gamepad1.right_stick_x);
+        gamepadItems[3] = setRetainedItem(gamepadItems[3], "09", "GP1 Right y: " + -gamepad1.right_stick_y);
+    }
+
+    /**
+     * Sets the value of a retained telemetry item, adding the item the first time
+     */
+    private Telemetry.Item setRetainedItem(Telemetry.Item item, String caption, String value) {
+        if (item == null) {
+            item = telemetry.addData(caption, value);
+            item.setRetained(true);
+        } else {
+            item.setValue(value);
+        }
+
+        return item;
     }
 
     public void setFirstMessage(String message) {
@@ -20,8 +20,18 @@
 package com.hfrobots.tnt.season1718;
 
 
+import com.hfrobots.tnt.corelib.control.GamepadRecorder;
+import com.hfrobots.tnt.corelib.control.HeadingHold;
+import com.hfrobots.tnt.corelib.control.MultiRateScheduler;
+import com.hfrobots.tnt.corelib.control.NinjaGamePad;
+import com.hfrobots.tnt.corelib.state.LoopWatchdog;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 
+import org.firstinspires.ftc.robotcore.internal.system.AppUtil;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
 /**
  * Provide a basic manual operational mode that controls the tank drive.
  */
@@ -29,6 +39,29 @@ import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
 public class RelicRecoveryTeleop extends RelicRecoveryTelemetry
 
 {
+    private MultiRateScheduler scheduler;
+
+    private LoopWatchdog watchdog;
+
+    // Every driver session is recorded, to be played back by RelicRecoveryTeachPlayback
+    static final File RECORDING_FOLDER = new File(AppUtil.FIRST_FOLDER, "recordings");
+
+    static final String RECORDING_EXTENSION = ".gamepads";
+
+    protected boolean recordGamepads = true;
+
+    private GamepadRecorder gamepadRecorder;
+
+    // Field-centric driving, see RelicRecoveryFieldCentricTeleop
+    protected boolean fieldCentric = false;
+
+    // Several sampling periods, anything older means the IMU has stopped answering
+    private static final long MAX_HEADING_AGE_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final HeadingHold headingHold = new HeadingHold(0.03 /* like gyro turns */, 0.3, 0.02);
+
+    // The IMU heading when the robot was facing "forward" on the field
+    private float fieldForwardHeadingDegrees = 0;
 
     @SuppressWarnings("unused")
     public RelicRecoveryTeleop() {
@@ -42,9 +75,59 @@ public class RelicRecoveryTeleop extends RelicRecoveryTelemetry
     @Override
     public void init() {
         super.init();
+
+        watchdog = newLoopWatchdog();
+
+        scheduler = new MultiRateScheduler();
+        scheduler.setCycleBudget(cycleBudget);
+
+        scheduler.schedule("drive", 10, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                handleDrivingInputs();
+            }
+        });
+
+        scheduler.schedule("glyph gripper", 10, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                handleGlyphGripper();
+            }
+        });
+
+        // The SDK only sends telemetry to the driver's station every 250 ms anyway
+        scheduler.scheduleDiagnostics("telemetry", 250, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                updateTelemetry(); // Update common telemetry
+                updateGamepadTelemetry();
+            }
+        });
+
+        scheduler.scheduleDiagnostics("voltage", 1, TimeUnit.SECONDS, new Runnable() {
+            @Override
+            public void run() {
+                logBatteryState("Teleop.loop()");
+            }
+        });
     }
 
 
+    @Override
+    public void start() {
+        super.start();
+
+        if (fieldCentric && cachedHeading != null) {
+            cachedHeading.start();
+        }
+
+        if (recordGamepads) {
+            gamepadRecorder = new GamepadRecorder(driversGamepad, operatorsGamepad);
+            gamepadRecorder.start(new File(RECORDING_FOLDER,
+                    "rr-teleop-" + System.currentTimeMillis() + RECORDING_EXTENSION));
+        }
+    }
+
     /**
      * Implement a state machine that controls the robot during
      * manual-operation.  The state machine uses gamepad input to transition
@@ -55,17 +138,47 @@ public class RelicRecoveryTeleop extends RelicRecoveryTelemetry
     @Override public void loop ()
 
     {
-        handleDrivingInputs();
-        handleGlyphGripper();
+        cycleBudget.startCycle();
+        snapshotGamepads();
+        driverGestures.update();
+
+        if (gamepadRecorder != null) {
+            gamepadRecorder.record();
+        }
+        watchdog.loopStarted();
+
+        if (fieldCentric) {
+            handleFieldForward();
+        }
+
+        // Driving, the glyph gripper, telemetry and voltage logging each run at their own rate,
+        // control first so that telemetry and logging get whatever time is left
+        scheduler.runDueTasks();
+
+        // stops the drive if loops stay slow, the driver's next input drives again
+        watchdog.loopEnded("teleop");
 
 //        handleLimits();
+    }
+
+    @Override
+    public void stop() {
+        super.stop();
 
-        //
-        // Send telemetry data to the driver station.
-        //
-        updateTelemetry(); // Update common telemetry
-        updateGamepadTelemetry();
+        if (scheduler != null) {
+            scheduler.logRunCounts();
+        }
 
+        if (gamepadRecorder != null) {
+            gamepadRecorder.stop();
+        }
+
+        if (fieldCentric && cachedHeading != null) {
+            cachedHeading.stop();
+        }
+
+        mecanumDriveLatency.logSummary();
+        glyphGripperLatency.logSummary();
     }
 
 //    private void handleLimits() {
@@ -73,6 +186,8 @@ public class RelicRecoveryTeleop extends RelicRecoveryTelemetry
 //    }
 
     private void handleDrivingInputs() {
+        mecanumDriveLatency.markInput(driversGamepad);
+
         double x = driversGamepad.getLeftStickX().getPosition();
         double y = -driversGamepad.getRightStickY().getPosition();
         double rot = (driversGamepad.getRightTrigger().getPosition() - driversGamepad.getLeftTrigger().getPosition());
@@ -86,7 +201,34 @@ public class RelicRecoveryTeleop extends RelicRecoveryTelemetry
         double yScaled = scaleThrottleValue(y);
         double rotateScaled = scaleThrottleValue(rot);
 
-        mecanumDrive.driveCartesian(xScaled, yScaled, rotateScaled, false, 0.0);
+        double gyroAngle = 0.0;
+
+        if (fieldCentric) {
+            // the heading is read on its own thread, this never waits on the IMU
+            if (cachedHeading != null && cachedHeading.getAgeNanos() <= MAX_HEADING_AGE_NANOS) {
+                float headingDegrees = cachedHeading.getHeadingDegrees();
+                gyroAngle = MecanumDrive.fieldCentricGyroAngle(headingDegrees, fieldForwardHeadingDegrees);
+                rotateScaled = headingHold.getRotation(rotateScaled, headingDegrees);
+            } else {
+                // drive robot-centric rather than on a stale heading
+                headingHold.reset();
+            }
+        }
+
+        mecanumDrive.driveCartesian(xScaled, yScaled, rotateScaled, false, gyroAngle);
+        mecanumDriveLatency.markOutput();
+    }
+
+    /**
+     * Holding the driver's right stick button makes the direction the robot is facing now
+     * "forward" for field-centric driving. Checked every loop, as the gesture is only seen
+     * in the loop it happens in.
+     */
+    private void handleFieldForward() {
+        if (cachedHeading != null && driverGestures.getLongPress(NinjaGamePad.RIGHT_STICK_BUTTON)) {
+            fieldForwardHeadingDegrees = cachedHeading.getHeadingDegrees();
+            headingHold.reset();
+        }
     }
 
 }
@@ -19,7 +19,7 @@
 
 package com.hfrobots.tnt.util;
 
-import com.hfrobots.tnt.corelib.control.DebouncedButton;
+import com.hfrobots.tnt.corelib.control.GamepadButtonEdges;
 import com.hfrobots.tnt.corelib.control.NinjaGamePad;
 import com.qualcomm.robotcore.eventloop.opmode.OpMode;
 import com.qualcomm.robotcore.eventloop.opmode.TeleOp;
@@ -49,15 +49,9 @@ public class MotorTester extends OpMode {
     private boolean runningTimedTest;
     private long timedTestStartMs;
 
-    private DebouncedButton aButton;
+    private NinjaGamePad ninjaGamePad;
 
-    private DebouncedButton bButton;
-
-    private DebouncedButton rightBumper;
-
-    private DebouncedButton dpadUp;
-
-    private DebouncedButton dpadDown;
+    private GamepadButtonEdges buttonEdges;
 
     @Override
     public void init() {
@@ -65,23 +59,22 @@ public class MotorTester extends OpMode {
         namedMotors = namedDeviceMap.getAll(DcMotor.class);
         currentListPosition = 0;
 
-        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad1);
-        aButton = new DebouncedButton(ninjaGamePad.getAButton());
-        bButton = new DebouncedButton(ninjaGamePad.getBButton());
-        rightBumper = new DebouncedButton(ninjaGamePad.getRightBumper());
-        dpadUp = new DebouncedButton(ninjaGamePad.getDpadUp());
-        dpadDown = new DebouncedButton(ninjaGamePad.getDpadDown());
+        ninjaGamePad = new NinjaGamePad(gamepad1);
+        buttonEdges = new GamepadButtonEdges(ninjaGamePad);
     }
 
     @Override
     public void loop() {
+        ninjaGamePad.snapshot();
+        buttonEdges.update();
+
         if (namedMotors.isEmpty()) {
             telemetry.addData("No DC Motors", "");
             updateTelemetry(telemetry);
             return;
         }
 
-        if (rightBumper.getRise()) {
+        if (buttonEdges.getRise(NinjaGamePad.RIGHT_BUMPER)) {
             currentListPosition++;
 
             if (currentListPosition == namedMotors.size()) {
@@ -89,7 +82,7 @@ public class MotorTester extends OpMode {
             }
         }
 
-        desiredPosition += (int)(-gamepad1.right_stick_y);
+        desiredPosition += (int)(-ninjaGamePad.getAxis(NinjaGamePad.RIGHT_STICK_Y));
 
         NamedDeviceMap.NamedDevice<DcMotor> namedDcMotor = namedMotors.get(currentListPosition);
         DcMotor currentMotor = namedDcMotor.getDevice();
@@ -108,7 +101,7 @@ public class MotorTester extends OpMode {
             return;
         }
 
-        if (bButton.getRise()) {
+        if (buttonEdges.getRise(NinjaGamePad.B_BUTTON)) {
             runningTimedTest = true;
             timedTestStartMs = System.currentTimeMillis();
             currentMotor.setPower(0.75D);
@@ -128,9 +121,9 @@ public class MotorTester extends OpMode {
             runningToPosition = false;
         }
 
-        float leftStickYPosition = -gamepad1.left_stick_y;
+        float leftStickYPosition = -ninjaGamePad.getAxis(NinjaGamePad.LEFT_STICK_Y);
 
-        if (aButton.getRise()) {
+        if (buttonEdges.getRise(NinjaGamePad.A_BUTTON)) {
             targetPosition = currentMotor.getCurrentPosition() + desiredPosition;
             currentMotor.setPower(1.0);
             currentMotor.setTargetPosition(targetPosition);
@@ -141,7 +134,7 @@ public class MotorTester extends OpMode {
 
         DcMotor.ZeroPowerBehavior powerBehavior;
 
-        if (gamepad1.left_bumper) {
+        if (buttonEdges.isPressed(NinjaGamePad.LEFT_BUMPER)) {
             powerBehavior = DcMotor.ZeroPowerBehavior.FLOAT;
         } else {
             powerBehavior = DcMotor.ZeroPowerBehavior.BRAKE;
@@ -0,0 +1,121 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import com.hfrobots.tnt.corelib.state.ManualClock;
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class ButtonGesturesTest extends TestCase {
+    public void testButtonGestures() {
+        ManualClock clock = new ManualClock();
+        Gamepad gamepad = new Gamepad();
+        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad);
+        ButtonGestures gestures = new ButtonGestures(clock, ninjaGamePad, 500 /* long press */, 200 /* double tap */);
+
+        // long press happens once, while still held
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertTrue(gestures.getLongPress(NinjaGamePad.A_BUTTON));
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getLongPress(NinjaGamePad.A_BUTTON));
+
+        // ...and releasing a long press isn't the first tap of a double tap
+        gamepad.a = false;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getDoubleTap(NinjaGamePad.A_BUTTON));
+
+        // double tap, then too slow for another
+        gamepad.a = false;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        clock.advance(100, TimeUnit.MILLISECONDS);
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertTrue(gestures.getDoubleTap(NinjaGamePad.A_BUTTON));
+        gamepad.a = false;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        clock.advance(300, TimeUnit.MILLISECONDS);
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getDoubleTap(NinjaGamePad.A_BUTTON));
+
+        // chord when the last of the buttons goes down
+        int chord = NinjaGamePad.A_BUTTON | NinjaGamePad.B_BUTTON;
+        assertFalse(gestures.getChord(chord));
+        gamepad.b = true;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertTrue(gestures.getChord(chord));
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getChord(chord));
+    }
+
+    public void testButtonHeldAtConstruction() {
+        ManualClock clock = new ManualClock();
+        clock.advance(10, TimeUnit.SECONDS);
+        Gamepad gamepad = new Gamepad();
+        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad);
+
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+        ButtonGestures gestures = new ButtonGestures(clock, ninjaGamePad, 500 /* long press */, 200 /* double tap */);
+
+        // the press that was already going on is never a long press
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getLongPress(NinjaGamePad.A_BUTTON));
+        clock.advance(1, TimeUnit.SECONDS);
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getLongPress(NinjaGamePad.A_BUTTON));
+
+        // ...nor the first tap of a double tap
+        gamepad.a = false;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertFalse(gestures.getDoubleTap(NinjaGamePad.A_BUTTON));
+
+        // but the next press is
+        clock.advance(500, TimeUnit.MILLISECONDS);
+        ninjaGamePad.snapshot();
+        gestures.update();
+        assertTrue(gestures.getLongPress(NinjaGamePad.A_BUTTON));
+    }
+}
@@ -0,0 +1,77 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import junit.framework.TestCase;
+
+public class CommandBufferTest extends TestCase {
+    public void testInterleavedRelays() {
+        CommandBuffer commands = new CommandBuffer(4);
+
+        RangeInput relayedLeftStick = commands.relay(newRangeInput(0.25f));
+        OnOffButton relayedButton = commands.relay(newButton(true));
+        RangeInput relayedRightStick = commands.relay(newRangeInput(-0.75f));
+        OnOffButton relayedOtherButton = commands.relay(newButton(false));
+
+        commands.publish();
+        assertTrue(commands.receive());
+
+        // each relayed input sees its own source, whatever order they were relayed in
+        assertEquals(0.25f, relayedLeftStick.getPosition());
+        assertTrue(relayedButton.isPressed());
+        assertEquals(-0.75f, relayedRightStick.getPosition());
+        assertFalse(relayedOtherButton.isPressed());
+
+        try {
+            commands.relay(newButton(true));
+            fail("Expected the buffer to be full");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+
+    private static RangeInput newRangeInput(final float position) {
+        return new RangeInput() {
+            @Override
+            public float getPosition() {
+                return position;
+            }
+
+            @Override
+            public float getMaxPosition() {
+                return 1;
+            }
+
+            @Override
+            public float getMinPosition() {
+                return -1;
+            }
+        };
+    }
+
+    private static OnOffButton newButton(final boolean pressed) {
+        return new OnOffButton() {
+            @Override
+            public boolean isPressed() {
+                return pressed;
+            }
+        };
+    }
+}
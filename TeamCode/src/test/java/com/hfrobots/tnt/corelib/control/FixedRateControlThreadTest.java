@@ -0,0 +1,74 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class FixedRateControlThreadTest extends TestCase {
+    public void testFixedRateControlThread() throws Exception {
+        final boolean[] driverPressed = new boolean[1];
+        OnOffButton driverButton = new OnOffButton() {
+            @Override
+            public boolean isPressed() {
+                return driverPressed[0];
+            }
+        };
+
+        CommandBuffer commands = new CommandBuffer(1);
+        final OnOffButton relayedButton = commands.relay(driverButton);
+        final int[] pressedRuns = new int[1];
+
+        FixedRateControlThread controlThread = new FixedRateControlThread("test", 2, TimeUnit.MILLISECONDS,
+                new Runnable() {
+                    @Override
+                    public void run() {
+                        if (relayedButton.isPressed() && ++pressedRuns[0] == 3) {
+                            throw new IllegalStateException("failed on purpose");
+                        }
+                    }
+                });
+
+        driverPressed[0] = true;
+        assertFalse(relayedButton.isPressed()); // not published yet
+        commands.publish();
+        assertTrue(commands.receive());
+        assertTrue(relayedButton.isPressed());
+        assertFalse(commands.receive()); // nothing new
+
+        controlThread.start();
+
+        for (int i = 0; i < 500 && controlThread.isRunning(); i++) {
+            Thread.sleep(2);
+        }
+
+        controlThread.stop();
+        assertEquals(3, pressedRuns[0]);
+        assertEquals(2, controlThread.getRunCount()); // the run that threw did not finish
+
+        try {
+            controlThread.checkNotFailed();
+            fail("Expected the task's exception");
+        } catch (IllegalStateException expected) {
+            // expected
+        }
+    }
+}
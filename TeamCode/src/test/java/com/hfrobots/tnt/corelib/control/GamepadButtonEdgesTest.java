@@ -0,0 +1,54 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import junit.framework.TestCase;
+
+public class GamepadButtonEdgesTest extends TestCase {
+    public void testGamepadSnapshotEdges() {
+        Gamepad gamepad = new Gamepad();
+        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad);
+        GamepadButtonEdges edges = new GamepadButtonEdges(ninjaGamePad);
+
+        assertSame(ninjaGamePad.getAButton(), ninjaGamePad.getAButton());
+
+        gamepad.a = true;
+        gamepad.left_stick_y = 0.5f;
+        ninjaGamePad.snapshot();
+        edges.update();
+
+        // changes to the live gamepad aren't seen until the next snapshot
+        gamepad.a = false;
+        gamepad.dpad_up = true;
+        gamepad.left_stick_y = 1.0f;
+        assertTrue(ninjaGamePad.getAButton().isPressed());
+        assertEquals(0.5f, ninjaGamePad.getLeftStickY().getPosition());
+        assertTrue(edges.getRise(NinjaGamePad.A_BUTTON));
+        assertTrue(edges.getRise(NinjaGamePad.A_BUTTON)); // asking again doesn't use it up
+
+        ninjaGamePad.snapshot();
+        edges.update();
+        assertEquals(NinjaGamePad.DPAD_UP, edges.getRises());
+        assertEquals(NinjaGamePad.A_BUTTON, edges.getFalls());
+        assertEquals(1.0f, ninjaGamePad.getAxis(NinjaGamePad.LEFT_STICK_Y));
+    }
+}
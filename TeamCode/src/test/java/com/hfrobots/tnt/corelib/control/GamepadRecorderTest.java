@@ -0,0 +1,73 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import com.hfrobots.tnt.corelib.state.ManualClock;
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import junit.framework.TestCase;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+public class GamepadRecorderTest extends TestCase {
+    public void testGamepadRecordingPlayback() throws Exception {
+        ManualClock clock = new ManualClock();
+        Gamepad gamepad = new Gamepad();
+        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad);
+        GamepadRecorder recorder = new GamepadRecorder(clock, 4 /* capacity */, ninjaGamePad);
+        ByteArrayOutputStream recording = new ByteArrayOutputStream();
+        recorder.start(recording);
+
+        for (int i = 0; i < 3; i++) {
+            gamepad.b = i == 1;
+            gamepad.right_stick_x = i / 10f;
+            ninjaGamePad.snapshot();
+            recorder.record();
+            clock.advance(20, TimeUnit.MILLISECONDS);
+        }
+
+        recorder.stop();
+        assertEquals(0, recorder.getDroppedCount());
+
+        GamepadPlayback playback = new GamepadPlayback(new ByteArrayInputStream(recording.toByteArray()));
+        NinjaGamePad[] playedGamepads = new NinjaGamePad[] { new NinjaGamePad(null) };
+        assertEquals(3, playback.size());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(40), playback.getDurationNanos());
+
+        assertTrue(playback.playInto(TimeUnit.MILLISECONDS.toNanos(25), playedGamepads));
+        assertTrue(playedGamepads[0].getBButton().isPressed());
+        assertEquals(0.1f, playedGamepads[0].getRightStickX().getPosition());
+
+        assertTrue(playback.playInto(TimeUnit.MILLISECONDS.toNanos(40), playedGamepads));
+        assertFalse(playedGamepads[0].getBButton().isPressed());
+        assertEquals(0.2f, playedGamepads[0].getRightStickX().getPosition());
+
+        // once it runs out, the gamepad is let go
+        assertFalse(playback.playInto(TimeUnit.MILLISECONDS.toNanos(60), playedGamepads));
+        assertEquals(0.0f, playedGamepads[0].getRightStickX().getPosition());
+
+        // power lost part way through writing the last record
+        byte[] cutShort = Arrays.copyOf(recording.toByteArray(), recording.size() - 5);
+        assertEquals(2, new GamepadPlayback(new ByteArrayInputStream(cutShort)).size());
+    }
+}
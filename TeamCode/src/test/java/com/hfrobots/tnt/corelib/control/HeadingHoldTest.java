@@ -0,0 +1,42 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import junit.framework.TestCase;
+
+public class HeadingHoldTest extends TestCase {
+    public void testHeadingHold() {
+        HeadingHold headingHold = new HeadingHold(0.01, 0.3, 0.05);
+
+        // the driver's rotation is used as-is
+        assertEquals(0.5, headingHold.getRotation(0.5, 170));
+        assertFalse(headingHold.isHolding());
+
+        // released at 170, so holds 170
+        assertEquals(0.0, headingHold.getRotation(0.0, 170), 0.0001);
+        assertEquals(170.0, headingHold.getTargetHeadingDegrees());
+
+        // drifted 20 degrees counter-clockwise across +/-180, steer back clockwise (positive)
+        assertEquals(0.2, headingHold.getRotation(0.0, -170), 0.0001);
+
+        // but never more than the maximum correction
+        assertEquals(-0.3, headingHold.getRotation(0.0, 100), 0.0001);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import com.qualcomm.robotcore.hardware.Gamepad;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class LatencyTrackerTest extends TestCase {
+    public void testLatencyTracker() {
+        Gamepad gamepad = new Gamepad();
+        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad);
+        LatencyTracker latencyTracker = new LatencyTracker("drive");
+
+        gamepad.left_stick_y = 0.5f;
+        ninjaGamePad.snapshot();
+        long changeNanos = ninjaGamePad.getLastChangeNanos();
+        ninjaGamePad.snapshot(); // nothing changed
+        assertEquals(changeNanos, ninjaGamePad.getLastChangeNanos());
+
+        assertEquals(0, ninjaGamePad.getLastChangeUnseenNanos()); // no snapshot before it
+
+        latencyTracker.markInput(ninjaGamePad);
+        latencyTracker.markOutput();
+        latencyTracker.markInput(ninjaGamePad); // already measured
+        latencyTracker.markOutput();
+        assertEquals(1, latencyTracker.getCount());
+
+        latencyTracker.markInput(System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(30),
+                TimeUnit.MILLISECONDS.toNanos(20));
+        latencyTracker.markOutput();
+        assertEquals(2, latencyTracker.getCount());
+        assertTrue(latencyTracker.getPercentileNanos(99) >= TimeUnit.MILLISECONDS.toNanos(30));
+        assertTrue(latencyTracker.getPercentileNanos(99) < TimeUnit.MILLISECONDS.toNanos(50));
+
+        // the worst case includes the time since the previous snapshot
+        assertTrue(latencyTracker.getWorstCasePercentileNanos(99) >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(latencyTracker.getWorstCaseMaxNanos() >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    public void testUnseenTimeIsSnapshotPeriod() throws Exception {
+        Gamepad gamepad = new Gamepad();
+        NinjaGamePad ninjaGamePad = new NinjaGamePad(gamepad);
+
+        ninjaGamePad.snapshot();
+        Thread.sleep(20); // a slow loop
+        gamepad.a = true;
+        ninjaGamePad.snapshot();
+
+        assertTrue(ninjaGamePad.getLastChangeUnseenNanos() >= TimeUnit.MILLISECONDS.toNanos(20));
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import com.hfrobots.tnt.corelib.state.ManualClock;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class MultiRateSchedulerTest extends TestCase {
+    public void testMultiRateScheduler() {
+        ManualClock clock = new ManualClock();
+        MultiRateScheduler scheduler = new MultiRateScheduler(clock);
+        Runnable nothing = new Runnable() {
+            @Override
+            public void run() {
+            }
+        };
+
+        scheduler.schedule("drive", 10, TimeUnit.MILLISECONDS, nothing);
+        scheduler.schedule("telemetry", 250, TimeUnit.MILLISECONDS, nothing);
+
+        // 1 second of 20 ms loops
+        for (int i = 0; i < 50; i++) {
+            scheduler.runDueTasks();
+            clock.advance(20, TimeUnit.MILLISECONDS);
+        }
+
+        assertEquals(50, scheduler.getRunCount("drive")); // can't run faster than the loop
+        assertEquals(4, scheduler.getRunCount("telemetry")); // at 0, 260, 500 and 760 ms
+    }
+}
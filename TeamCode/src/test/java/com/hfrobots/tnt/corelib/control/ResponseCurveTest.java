@@ -0,0 +1,41 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.control;
+
+import junit.framework.TestCase;
+
+public class ResponseCurveTest extends TestCase {
+    public void testResponseCurve() {
+        // the lookup table stays close to the curve it was worked out from
+        for (float x = -1; x <= 1; x += 0.01f) {
+            double expected = 0.3 * Math.pow(x, 3) + 0.7 * x;
+            assertEquals(expected, ResponseCurve.DRIVE.shape(x), 0.0001);
+        }
+
+        ResponseCurve tableCurve = new ResponseCurve(new float[] {0, 0.2f, 1});
+        assertEquals(0.1f, tableCurve.shape(0.25f), 0.0001f); // interpolated
+        assertEquals(-0.6f, tableCurve.shape(-0.75f), 0.0001f);
+        assertEquals(1.0f, tableCurve.shape(2.0f)); // clipped
+
+        ResponseCurve deadbandCurve = new ResponseCurve(0, 1, 0.1f);
+        assertEquals(0.0f, deadbandCurve.shape(0.0f));
+        assertEquals(0.55f, deadbandCurve.shape(0.5f), 0.0001f);
+    }
+}
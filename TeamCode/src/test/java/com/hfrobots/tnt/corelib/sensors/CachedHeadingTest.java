@@ -0,0 +1,49 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.sensors;
+
+import com.hfrobots.tnt.corelib.state.ManualClock;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class CachedHeadingTest extends TestCase {
+    public void testCachedHeading() {
+        ManualClock clock = new ManualClock();
+        final float[] imuHeading = {170};
+        CachedHeading cachedHeading = new CachedHeading(clock, "test heading", 20, TimeUnit.MILLISECONDS,
+                new CachedHeading.Source() {
+                    @Override
+                    public float readHeadingDegrees() {
+                        return imuHeading[0];
+                    }
+                });
+
+        assertFalse(cachedHeading.hasHeading());
+        assertEquals(Long.MAX_VALUE, cachedHeading.getAgeNanos());
+
+        cachedHeading.sample();
+        imuHeading[0] = -170; // not seen until the next sample
+        clock.advance(30, TimeUnit.MILLISECONDS);
+        assertEquals(170f, cachedHeading.getHeadingDegrees());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(30), cachedHeading.getAgeNanos());
+    }
+}
@@ -0,0 +1,86 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import junit.framework.TestCase;
+
+public class CommandSchedulerTest extends TestCase {
+    TestTelemetry testTelemetry;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        testTelemetry = new TestTelemetry();
+    }
+
+    public void testCommandScheduler() {
+        final int[] collectorStops = new int[1];
+
+        Subsystem shooter = new Subsystem("shooter");
+        Subsystem collector = new Subsystem("collector") {
+            @Override
+            protected void stop() {
+                collectorStops[0]++;
+            }
+        };
+
+        TestState collectorToggles = new TestState("collector toggles", testTelemetry);
+        collectorToggles.setNextState(collectorToggles); // never finishes
+
+        TestState shootState = new TestState("shoot", testTelemetry) {
+            @Override
+            public State doStuffAndGetNextState() {
+                super.doStuffAndGetNextState();
+
+                return ((TestState) this).executionCount < 3 ? this : nextState;
+            }
+        };
+
+        TestState driveState = new TestState("drive", testTelemetry);
+        driveState.setNextState(driveState);
+
+        CommandScheduler scheduler = new CommandScheduler();
+        scheduler.setDefaultCommand(collector, new Command(collectorToggles, collector));
+        scheduler.run();
+        assertEquals(1, collectorToggles.executionCount);
+
+        // shooting needs the collector too, so pre-empts the toggles
+        Command shootCommand = new Command(shootState, shooter, collector);
+        scheduler.schedule(shootCommand);
+        scheduler.schedule(new Command(driveState)); // doesn't conflict
+        assertEquals(1, collectorStops[0]);
+
+        for (int i = 0; i < 3; i++) {
+            scheduler.run();
+        }
+
+        assertEquals(1, collectorToggles.executionCount);
+        assertEquals(3, shootState.executionCount);
+        assertEquals(3, driveState.executionCount);
+        assertFalse(scheduler.isScheduled(shootCommand));
+
+        // the collector is free again, so its default command restarts
+        scheduler.run();
+        assertEquals(1, collectorToggles.executionCount);
+        assertEquals("collector toggles", collector.getCurrentCommand().getName());
+        assertEquals(1, collectorStops[0]); // finishing is not cancelling
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import com.hfrobots.tnt.corelib.control.MultiRateScheduler;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class CycleBudgetTest extends TestCase {
+    public void testCycleBudgetDefersDiagnostics() {
+        final ManualClock clock = new ManualClock();
+        final boolean[] slowControl = new boolean[1];
+        final int[] telemetryRuns = new int[1];
+
+        CycleBudget cycleBudget = new CycleBudget(clock, 15, TimeUnit.MILLISECONDS);
+        MultiRateScheduler scheduler = new MultiRateScheduler(clock);
+        scheduler.setCycleBudget(cycleBudget);
+
+        scheduler.schedule("drive", 10, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                clock.advance(slowControl[0] ? 20 : 5, TimeUnit.MILLISECONDS);
+            }
+        });
+
+        scheduler.scheduleDiagnostics("telemetry", 250, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                telemetryRuns[0]++;
+            }
+        });
+
+        slowControl[0] = true;
+        cycleBudget.startCycle();
+        scheduler.runDueTasks();
+        assertEquals(0, telemetryRuns[0]); // control used up the budget
+        assertEquals(1, cycleBudget.getSkippedCount());
+
+        slowControl[0] = false;
+        cycleBudget.startCycle();
+        scheduler.runDueTasks();
+        assertEquals(1, telemetryRuns[0]); // deferred to the next loop with time left
+    }
+}
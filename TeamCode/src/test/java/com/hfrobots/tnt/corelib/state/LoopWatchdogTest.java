@@ -0,0 +1,104 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class LoopWatchdogTest extends TestCase {
+    StateMachine stateMachine;
+    TestTelemetry testTelemetry;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        testTelemetry = new TestTelemetry();
+        stateMachine = new StateMachine(testTelemetry);
+    }
+
+    public void testLoopWatchdog() {
+        final ManualClock watchdogClock = new ManualClock();
+        final int[] stopCount = new int[1];
+
+        LoopWatchdog watchdog = new LoopWatchdog(watchdogClock, 50, TimeUnit.MILLISECONDS, 3 /* overruns */, new Runnable() {
+            @Override
+            public void run() {
+                stopCount[0]++;
+            }
+        });
+
+        // a state whose loops take 100 ms, like one stuck on a stalled I2C read
+        TestState stalledState = new TestState("stalled", testTelemetry) {
+            @Override
+            public State doStuffAndGetNextState() {
+                super.doStuffAndGetNextState();
+                watchdogClock.advance(100, TimeUnit.MILLISECONDS);
+
+                return this;
+            }
+        };
+
+        stateMachine.addSequential(stalledState);
+        stateMachine.setLoopWatchdog(watchdog);
+
+        for (int i = 0; i < 5; i++) {
+            stateMachine.doOneStateLoop();
+        }
+
+        assertTrue(stateMachine.isSafeStopped());
+        assertEquals(1, stopCount[0]);
+        assertEquals(3, stalledState.executionCount); // not run once safe-stopped
+        assertEquals("stalled", watchdog.getLastOverrunName());
+        assertEquals(3, watchdog.getLastOverrunCycle());
+        assertFalse(watchdog.isTripped()); // the safe-stopped loops are fast
+
+        // runs the state again after enough loops within budget, and stops again if still slow
+        for (int i = 0; i < StateMachine.DEFAULT_SAFE_STOP_RECOVERY_LOOPS - 2; i++) {
+            stateMachine.doOneStateLoop();
+        }
+
+        assertFalse(stateMachine.isSafeStopped());
+        assertEquals(3, stalledState.executionCount);
+
+        for (int i = 0; i < 3; i++) {
+            stateMachine.doOneStateLoop();
+        }
+
+        assertTrue(stateMachine.isSafeStopped());
+        assertEquals(2, stopCount[0]);
+        assertEquals(6, stalledState.executionCount);
+        assertEquals(2, watchdog.getTripCount());
+
+        // ...unless told to stay stopped
+        watchdog.reset();
+        StateMachine stayStoppedStateMachine = new StateMachine(testTelemetry);
+        stayStoppedStateMachine.addSequential(stalledState);
+        stayStoppedStateMachine.setLoopWatchdog(watchdog, StateMachine.STAY_SAFE_STOPPED);
+
+        for (int i = 0; i < 3 + StateMachine.DEFAULT_SAFE_STOP_RECOVERY_LOOPS * 2; i++) {
+            stayStoppedStateMachine.doOneStateLoop();
+        }
+
+        assertTrue(stayStoppedStateMachine.isSafeStopped());
+        assertEquals(9, stalledState.executionCount);
+    }
+}
@@ -0,0 +1,108 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import junit.framework.TestCase;
+
+import java.io.File;
+import java.io.FileOutputStream;
+
+public class RouteDescriptionTest extends TestCase {
+    StateMachine stateMachine;
+    TestTelemetry testTelemetry;
+
+    @Override
+    protected void setUp() throws Exception {
+        super.setUp();
+
+        testTelemetry = new TestTelemetry();
+        stateMachine = new StateMachine(testTelemetry);
+    }
+
+    public void testRouteDescription() throws Exception {
+        String text = "# test routes\n" +
+                "route Short\n" +
+                "drive 20 timeout=15000 # inches\n" +
+                "done All done\n" +
+                "\n" +
+                "route Long\n" +
+                "drive 5\n" +
+                "turn ccw 33\n" +
+                "done Long done\n";
+
+        RouteDescription routes = RouteDescription.parse(text);
+        assertSame(routes, RouteDescription.parse(text));
+        assertEquals(2, routes.getRouteNames().size());
+        assertEquals("Short", routes.getRouteNames().get(0));
+
+        RouteStep driveStep = routes.getSteps("Short").get(0);
+        assertEquals("drive", driveStep.getCommand());
+        assertEquals(20.0, driveStep.getDoubleArgument(0));
+        assertEquals(15000, driveStep.getLongOption("timeout", 0));
+        assertEquals(0.4, driveStep.getDoubleOption("power", 0.4));
+        assertEquals("All done", routes.getSteps("Short").get(1).getArgumentsFrom(0));
+
+        RouteStepFactory stepFactory = new RouteStepFactory() {
+            @Override
+            public State newState(RouteStep step) {
+                TestState state = new TestState(step.toString(), testTelemetry);
+
+                if ("done".equals(step.getCommand())) {
+                    state.setNextState(state);
+                }
+
+                return state;
+            }
+        };
+
+        routes.addToStateMachine("Long", stateMachine, stepFactory);
+        stateMachine.compile();
+        stateMachine.doOneStateLoop();
+        stateMachine.doOneStateLoop();
+        assertEquals("done Long done", stateMachine.getCurrentStateName());
+
+        try {
+            RouteDescription.parse("drive 5\n");
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // step outside of a route
+        }
+
+        // a file with a step the factory doesn't know falls back to the default routes
+        File routesFile = File.createTempFile("routes", ".txt");
+        routesFile.deleteOnExit();
+        FileOutputStream out = new FileOutputStream(routesFile);
+        out.write("route Bad\nfly 5\n".getBytes("UTF-8"));
+        out.close();
+
+        RouteStepFactory strictFactory = new RouteStepFactory() {
+            @Override
+            public State newState(RouteStep step) {
+                if ("fly".equals(step.getCommand())) {
+                    throw step.invalid("unknown command");
+                }
+
+                return new TestState(step.toString(), testTelemetry);
+            }
+        };
+
+        assertSame(routes, RouteDescription.load(routesFile, text, strictFactory));
+    }
+}
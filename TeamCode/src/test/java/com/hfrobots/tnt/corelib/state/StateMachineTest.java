@@ -25,11 +25,15 @@ import com.hfrobots.tnt.corelib.control.DebouncedGamepadButtons;
 
 import junit.framework.TestCase;
 
-import org.firstinspires.ftc.robotcore.external.Func;
 import org.firstinspires.ftc.robotcore.external.Telemetry;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.lang.management.ManagementFactory;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 public class StateMachineTest extends TestCase {
     TestOnOffButton goButton;
@@ -114,162 +118,555 @@ public class StateMachineTest extends TestCase {
         System.out.println(testTelemetry.telemetryData.get("00"));
     }
 
-    class TestState extends State {
-        private int executionCount = 0;
+    public void testSteadyStateLoopDoesNotAllocate() {
+        java.lang.management.ThreadMXBean threadBean = ManagementFactory.getThreadMXBean();
 
-        private int configuredCallCount = 0;
+        if (!(threadBean instanceof com.sun.management.ThreadMXBean)) {
+            return; // can't measure allocations on this JVM
+        }
 
-        private int configurableParameter = 0;
+        com.sun.management.ThreadMXBean allocationBean = (com.sun.management.ThreadMXBean) threadBean;
+        long threadId = Thread.currentThread().getId();
 
-        public TestState(String name, Telemetry telemetry) {
-            super(name, telemetry);
-        }
+        TestState loopingState = new TestState("looping", testTelemetry);
+        loopingState.setNextState(loopingState);
+        stateMachine.setFirstState(loopingState);
 
-        @Override
-        public State doStuffAndGetNextState() {
-            executionCount++;
-            return nextState;
+        // Warm up, the first loop builds the telemetry line
+        for (int i = 0; i < 1000; i++) {
+            stateMachine.doOneStateLoop();
         }
 
-        @Override
-        public void resetToStart() {
-            executionCount = 0;
-        }
+        final int numLoops = 10000;
 
-        @Override
-        public void liveConfigure(DebouncedGamepadButtons buttons) {
-            configuredCallCount++;
+        long allocatedBefore = allocationBean.getThreadAllocatedBytes(threadId);
 
-            //if (buttons.getaButton().getRise()) {
-              //  configurableParameter++;
-            //}
+        for (int i = 0; i < numLoops; i++) {
+            stateMachine.doOneStateLoop();
         }
+
+        long allocatedAfter = allocationBean.getThreadAllocatedBytes(threadId);
+
+        // Integer division absorbs the few bytes the measurement itself may cost
+        assertEquals(0, (allocatedAfter - allocatedBefore) / numLoops);
+        assertEquals("> state looping", testTelemetry.telemetryData.get("00"));
     }
 
-    class TestOnOffButton implements OnOffButton {
-        boolean pressed = false;
+    public void testGoBackWithBoundedHistory() {
+        stateMachine = new StateMachine(testTelemetry, 2);
+        stateMachine.setGoBackButton(new DebouncedButton(goBackButton));
+        stateMachine.setGoButton(new DebouncedButton(goButton));
+        stateMachine.setDoOverButton(new DebouncedButton(doOverButton));
 
-        @Override
-        public boolean isPressed() {
-            return pressed;
-        }
+        TestState stateA = new TestState("State A", testTelemetry);
+        TestState stateB = new TestState("State B", testTelemetry);
+        TestState stateC = new TestState("State C", testTelemetry);
+        TestState stateD = new TestState("State D", testTelemetry);
+        stateMachine.addSequential(stateA);
+        stateMachine.addSequential(stateB);
+        stateMachine.addSequential(stateC);
+        stateMachine.addSequential(stateD);
+
+        stateMachine.doOneStateLoop();
+        stateMachine.doOneStateLoop();
+        stateMachine.startDebugging();
+        stateMachine.doOneStateLoop(); // C -> D, and pause
+        assertEquals("State D", stateMachine.getCurrentStateName());
+
+        goBackButton.pressed = true;
+        stateMachine.doOneStateLoop();
+        goBackButton.pressed = false;
+        assertEquals("State C", stateMachine.getCurrentStateName());
+        assertEquals("[DEBUG]|| state State C", testTelemetry.telemetryData.get("00"));
+
+        // Only 2 entries are remembered, so we can't go back any further than "C"
+        stateMachine.doOneStateLoop();
+        goBackButton.pressed = true;
+        stateMachine.doOneStateLoop();
+        goBackButton.pressed = false;
+        assertEquals("State C", stateMachine.getCurrentStateName());
     }
 
-    class TestTelemetry implements Telemetry {
-        Map<String, String> telemetryData = new HashMap<>();
+    public void testGoBackRestoresMemento() {
+        RewindableTestState stateA = new RewindableTestState("State A", testTelemetry);
+        TestState stateB = new TestState("State B", testTelemetry);
+        stateMachine.addSequential(stateA);
+        stateMachine.addSequential(stateB);
 
-        @Override
-        public Item addData(String caption, String format, Object... args) {
-            telemetryData.put(caption, String.format(format, args));
+        stateMachine.startDebugging();
+        stateA.setting = 3; // as if live-configured before running
+        stateMachine.doOneStateLoop(); // runs A, and pauses at B
+        stateA.setting = 7; // changed while running
 
-            return null;
-        }
+        goBackButton.pressed = true;
+        stateMachine.doOneStateLoop();
+        goBackButton.pressed = false;
+        assertEquals("State A", stateMachine.getCurrentStateName());
+        assertEquals(3, stateA.setting);
+        assertEquals(1, ((TestState) stateA).executionCount); // restored, rather than reset
+    }
 
-        @Override
-        public Item addData(String caption, Object value) {
-            telemetryData.put(caption, value.toString());
+    public void testCompiledOperation() {
+        TestState startState = new TestState("start", testTelemetry);
+        TestState state2 = new TestState("state2", testTelemetry);
+        TestState state3 = new TestState("state3", testTelemetry);
+        TestState notAddedState = new TestState("not added", testTelemetry);
 
-            return null;
-        }
+        stateMachine.addSequential(startState);
+        stateMachine.addSequential(state2);
+        stateMachine.addSequential(state3);
+        state3.setNextState(notAddedState); // reachable, so compile() will add it
+        notAddedState.setNextState(notAddedState);
 
-        @Override
-        public <T> Item addData(String caption, Func<T> valueProducer) {
-            return null;
-        }
+        stateMachine.compile();
+        assertTrue(stateMachine.isCompiled());
 
-        @Override
-        public <T> Item addData(String caption, String format, Func<T> valueProducer) {
-            return null;
-        }
+        stateMachine.doOneStateLoop();
+        assertEquals("state2", stateMachine.getCurrentStateName());
+        stateMachine.doOneStateLoop();
+        assertEquals("state3", stateMachine.getCurrentStateName());
+        stateMachine.doOneStateLoop();
+        assertEquals("not added", stateMachine.getCurrentStateName());
+        stateMachine.doOneStateLoop();
+        assertEquals("> state not added", testTelemetry.telemetryData.get("00"));
 
-        @Override
-        public boolean removeItem(Item item) {
-            return false;
+        // a target compile() could not have found is added rather than failing
+        TestState hiddenState = new TestState("hidden", testTelemetry);
+        hiddenState.setNextState(hiddenState);
+        notAddedState.setNextState(hiddenState);
+        stateMachine.doOneStateLoop();
+        assertEquals("hidden", stateMachine.getCurrentStateName());
+        stateMachine.doOneStateLoop();
+        assertEquals("hidden", stateMachine.getCurrentStateName());
+
+        try {
+            stateMachine.addNewState(new TestState("too late", testTelemetry));
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
         }
+    }
 
-        @Override
-        public void clear() {
+    public void testCompileFindsProblems() {
+        TestState startState = new TestState("start", testTelemetry);
+        TestState deadEnd = new TestState("dead end", testTelemetry);
+        TestState orphan = new TestState("orphan", testTelemetry);
+        orphan.setNextState(startState);
 
+        stateMachine.setFirstState(startState);
+        startState.setNextState(deadEnd);
+        stateMachine.addNewState(deadEnd);
+        stateMachine.addNewState(orphan);
+
+        try {
+            stateMachine.compile();
+            fail("Expected IllegalStateException");
+        } catch (IllegalStateException expected) {
+            assertTrue(expected.getMessage(), expected.getMessage().contains("'dead end' has no next state"));
+            assertTrue(expected.getMessage(), expected.getMessage().contains("'orphan' can not be reached"));
         }
+    }
 
-        @Override
-        public void clearAll() {
+    public void testCompiledDoOverWithStartDelay() {
+        TestState stateA = new TestState("State A", testTelemetry);
+        TestState stateB = new TestState("State B", testTelemetry);
+        stateB.setNextState(stateB);
+        stateMachine.addSequential(stateA);
+        stateMachine.addSequential(stateB);
+        stateMachine.addStartDelay(0);
+        stateMachine.compile();
 
-        }
+        ManualClock clock = new ManualClock();
+        stateMachine.setClock(clock);
 
-        @Override
-        public Object addAction(Runnable action) {
-            return null;
-        }
+        assertEquals("Delayed start", stateMachine.getCurrentStateName());
 
-        @Override
-        public boolean removeAction(Object token) {
-            return false;
+        stateMachine.startDebugging();
+        stateMachine.doOneStateLoop(); // starts the delay timer
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        stateMachine.doOneStateLoop();
+        assertEquals("State A", stateMachine.getCurrentStateName());
+
+        doOverButton.pressed = true;
+        stateMachine.doOneStateLoop();
+        doOverButton.pressed = false;
+        assertEquals("State A", stateMachine.getCurrentStateName());
+        assertEquals(0, stateA.executionCount);
+    }
+
+    public void testDelaysRunAgainstVirtualClock() {
+        ManualClock clock = new ManualClock();
+        stateMachine.setClock(clock);
+
+        DelayState waitState = new DelayState("wait", testTelemetry, 15);
+        DelayState pulseState = new DelayState("pulse", testTelemetry, 150, TimeUnit.MILLISECONDS);
+        TestState endState = new TestState("end", testTelemetry);
+        endState.setNextState(endState);
+
+        stateMachine.addSequential(waitState);
+        stateMachine.addSequential(pulseState);
+        stateMachine.addSequential(endState);
+        stateMachine.addStartDelay(10);
+        stateMachine.compile();
+
+        int loopCount = 0;
+
+        while (!"end".equals(stateMachine.getCurrentStateName())) {
+            stateMachine.doOneStateLoop();
+            clock.advance(10, TimeUnit.MILLISECONDS);
+            loopCount++;
+
+            assertTrue(loopCount < 10000);
         }
 
-        @Override
-        public boolean update() {
-            return false;
+        // 10 s start delay + 15 s + 150 ms at 10 ms per loop, plus a couple of loops per state to start and expire each delay
+        assertTrue("took " + loopCount + " loops", loopCount >= 2515 && loopCount <= 2525);
+    }
+
+    public void testDelayStateRunDirectly() {
+        ManualClock clock = new ManualClock();
+        DelayState delayState = new DelayState("delay", testTelemetry, 150, TimeUnit.MILLISECONDS);
+        TestState endState = new TestState("end", testTelemetry);
+        delayState.setNextState(endState);
+        delayState.setClock(clock);
+
+        assertSame(delayState, delayState.doStuffAndGetNextState());
+        clock.advance(100, TimeUnit.MILLISECONDS);
+        assertSame(delayState, delayState.doStuffAndGetNextState());
+        clock.advance(50, TimeUnit.MILLISECONDS);
+        assertSame(endState, delayState.doStuffAndGetNextState());
+    }
+
+    public void testRouteDurationEstimate() {
+        MotionModel motionModel = new MotionModel(30, 40, 180, 360, 20);
+
+        // long enough to reach top speed, then too short to
+        assertEquals(2083, TimeUnit.NANOSECONDS.toMillis(motionModel.driveNanos(40, 1)));
+        assertEquals(1000, TimeUnit.NANOSECONDS.toMillis(motionModel.driveNanos(10, 1)));
+
+        StateMachine nestedStateMachine = new StateMachine(testTelemetry);
+        nestedStateMachine.addSequential(new DelayState("nested delay", testTelemetry, 500, TimeUnit.MILLISECONDS));
+
+        TestState endState = new TestState("end", testTelemetry);
+        endState.setNextState(endState);
+
+        stateMachine.addSequential(new DelayState("delay", testTelemetry, 2));
+        stateMachine.addSequential(new TestState("instant", testTelemetry));
+        stateMachine.addSequential(new ParallelState("parallel", testTelemetry, ParallelState.JoinPolicy.ALL,
+                new DelayState("short", testTelemetry, 1), new DelayState("long", testTelemetry, 3)));
+        stateMachine.addSequential(new StateMachineState("nested", testTelemetry, nestedStateMachine));
+
+        ChoiceState choiceState = new ChoiceState("choice", testTelemetry, new ChoiceState.Chooser() {
+            @Override
+            public int choose() {
+                return ChoiceState.NEXT_STATE;
+            }
+        });
+
+        choiceState.addBranch(new DelayState("long branch", testTelemetry, 4));
+        stateMachine.addSequential(choiceState);
+        stateMachine.addSequential(endState);
+        stateMachine.addStartDelay(1);
+
+        // 1 s start delay + 2 s + one loop + 3 s + 0.5 s + one loop + the longer branch (4 s) + one loop
+        RouteDurationEstimator estimator = new RouteDurationEstimator(motionModel);
+        assertEquals(10560, TimeUnit.NANOSECONDS.toMillis(estimator.estimateNanos(stateMachine)));
+
+        Map<String, Long> estimates = new HashMap<>();
+        estimates.put("slow", 10L);
+        estimates.put("fast", 1L);
+        assertEquals("fast", RouteDurationEstimator.rankFastestFirst(estimates).get(0));
+    }
+
+    public void testDeadlineChoice() {
+        ManualClock clock = new ManualClock();
+        stateMachine.setClock(clock);
+        stateMachine.setDeadline(10, TimeUnit.SECONDS);
+
+        DeadlineChoiceState choiceState = new DeadlineChoiceState("choose", testTelemetry, stateMachine,
+                new MotionModel(30, 40, 180, 360, 20), 30 /* points */);
+        TestState endState = new TestState("end", testTelemetry);
+        endState.setNextState(endState);
+
+        DelayState parkState = new DelayState("park", testTelemetry, 1);
+        parkState.setNextState(endState);
+        choiceState.addAlternative(parkState, 5 /* points */);
+
+        stateMachine.addSequential(new DelayState("first beacon", testTelemetry, 6));
+        stateMachine.addSequential(choiceState);
+        stateMachine.addSequential(new DelayState("second beacon", testTelemetry, 5));
+        stateMachine.addSequential(endState);
+        stateMachine.compile(); // finds the park state through the choice's branches
+
+        while (!"choose".equals(stateMachine.getCurrentStateName())) {
+            stateMachine.doOneStateLoop();
+            clock.advance(10, TimeUnit.MILLISECONDS);
         }
 
-        @Override
-        public Line addLine() {
-            return null;
+        // 4 s left is not enough for the second beacon
+        assertTrue(stateMachine.getRemainingNanos() <= TimeUnit.SECONDS.toNanos(4));
+        stateMachine.doOneStateLoop();
+        assertEquals("park", stateMachine.getCurrentStateName());
+
+        // with more time, the second beacon is worth more
+        stateMachine.setDeadline(20, TimeUnit.SECONDS);
+        stateMachine.resetToStart();
+
+        while (!"choose".equals(stateMachine.getCurrentStateName())) {
+            stateMachine.doOneStateLoop();
+            clock.advance(10, TimeUnit.MILLISECONDS);
         }
 
-        @Override
-        public Line addLine(String lineCaption) {
-            return null;
+        stateMachine.doOneStateLoop();
+        assertEquals("second beacon", stateMachine.getCurrentStateName());
+    }
+
+    public void testChoiceState() {
+        final int[] chosenBranch = new int[] { 1 };
+
+        ChoiceState choiceState = new ChoiceState("choose", testTelemetry, new ChoiceState.Chooser() {
+            @Override
+            public int choose() {
+                return chosenBranch[0];
+            }
+        });
+
+        TestState leftState = new TestState("left", testTelemetry);
+        TestState rightState1 = new TestState("right 1", testTelemetry);
+        TestState rightState2 = new TestState("right 2", testTelemetry);
+        rightState1.setNextState(rightState2);
+        choiceState.addBranch(leftState);
+        choiceState.addBranch(rightState1, rightState2);
+
+        TestState endState = new TestState("end", testTelemetry);
+        endState.setNextState(endState);
+
+        stateMachine.addSequential(choiceState);
+        stateMachine.addSequential(endState);
+        stateMachine.compile(); // the branches are found without being added
+
+        stateMachine.doOneStateLoop();
+        assertEquals("right 1", stateMachine.getCurrentStateName());
+        stateMachine.doOneStateLoop();
+        stateMachine.doOneStateLoop();
+        assertEquals("end", stateMachine.getCurrentStateName());
+        assertEquals(0, leftState.executionCount);
+
+        chosenBranch[0] = ChoiceState.NEXT_STATE;
+        stateMachine.resetToStart();
+        stateMachine.doOneStateLoop();
+        assertEquals("end", stateMachine.getCurrentStateName());
+    }
+
+    public void testParallelStateJoinPolicies() {
+        CountdownState drive = new CountdownState("drive", 3);
+        CountdownState mechanism = new CountdownState("mechanism", 1);
+        TestState afterAll = new TestState("after all", testTelemetry);
+        afterAll.setNextState(afterAll);
+
+        ParallelState all = new ParallelState("all", testTelemetry, ParallelState.JoinPolicy.ALL,
+                drive, mechanism);
+        stateMachine.addSequential(all);
+        stateMachine.addSequential(afterAll);
+        stateMachine.compile();
+
+        stateMachine.doOneStateLoop();
+        stateMachine.doOneStateLoop();
+        assertEquals("all", stateMachine.getCurrentStateName());
+        assertEquals(1, mechanism.executionCount); // done after the first tick, not run again
+        assertEquals(2, drive.executionCount);
+
+        stateMachine.doOneStateLoop();
+        assertEquals("after all", stateMachine.getCurrentStateName());
+        assertEquals(3, drive.executionCount);
+
+        drive.resetToStart();
+        mechanism.resetToStart();
+        ParallelState any = new ParallelState("any", testTelemetry, ParallelState.JoinPolicy.ANY,
+                drive, mechanism);
+        any.setNextState(afterAll);
+        assertSame(afterAll, any.doStuffAndGetNextState());
+
+        drive.resetToStart();
+        mechanism.resetToStart();
+        ParallelState leader = ParallelState.withLeader("leader", testTelemetry, drive, mechanism);
+        leader.setNextState(afterAll);
+        assertSame(leader, leader.doStuffAndGetNextState());
+        assertSame(leader, leader.doStuffAndGetNextState());
+        assertSame(afterAll, leader.doStuffAndGetNextState());
+        assertEquals(1, mechanism.executionCount);
+    }
+
+    public void testNestedStateMachine() {
+        StateMachine nestedMachine = new StateMachine(testTelemetry);
+        TestState nestedA = new TestState("nested A", testTelemetry);
+        TestState nestedB = new TestState("nested B", testTelemetry);
+        nestedMachine.addSequential(nestedA);
+        nestedMachine.addSequential(nestedB);
+        nestedMachine.compile();
+
+        TestState after = new TestState("after", testTelemetry);
+        after.setNextState(after);
+        stateMachine.addSequential(new StateMachineState("nested", testTelemetry, nestedMachine));
+        stateMachine.addSequential(after);
+        stateMachine.compile();
+
+        stateMachine.doOneStateLoop(); // nested A -> nested B
+        assertEquals("nested", stateMachine.getCurrentStateName());
+        assertEquals("nested B", nestedMachine.getCurrentStateName());
+
+        stateMachine.doOneStateLoop(); // nested B has no next state, nested machine is finished
+        assertTrue(nestedMachine.isFinished());
+        assertEquals("after", stateMachine.getCurrentStateName());
+        assertEquals(1, nestedB.executionCount);
+
+        // Re-using the nested state machine starts it from the top
+        TestState other = new TestState("other", testTelemetry);
+        other.setNextState(other);
+        StateMachineState reused = new StateMachineState("reused", testTelemetry, nestedMachine);
+        reused.setNextState(other);
+        assertSame(reused, reused.doStuffAndGetNextState());
+        assertEquals(1, nestedA.executionCount);
+        assertSame(other, reused.doStuffAndGetNextState());
+    }
+
+    public void testTransitionJournal() throws Exception {
+        ManualClock clock = new ManualClock();
+        stateMachine.setClock(clock);
+        stateMachine.enableJournal(2); // only the last 2 are kept
+
+        TimeoutSafetyState timeoutState = new TimeoutSafetyState("timeout", testTelemetry, 100) {
+            @Override
+            public State doStuffAndGetNextState() {
+                return isTimedOut() ? nextState : this;
+            }
+
+            @Override
+            public void liveConfigure(DebouncedGamepadButtons buttons) {
+
+            }
+        };
+
+        stateMachine.addSequential(new TestState("first", testTelemetry));
+        stateMachine.addSequential(timeoutState);
+        stateMachine.addSequential(new TestState("last", testTelemetry));
+
+        while (!stateMachine.isFinished()) {
+            stateMachine.doOneStateLoop();
+            clock.advance(10, TimeUnit.MILLISECONDS);
         }
 
-        @Override
-        public boolean removeLine(Line line) {
-            return false;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        stateMachine.writeJournal(out);
+        TransitionJournalReader reader = TransitionJournalReader.read(new ByteArrayInputStream(out.toByteArray()));
+
+        assertEquals(3, reader.getStateNames().size());
+        List<TransitionJournalReader.Transition> transitions = reader.getTransitions();
+        assertEquals(2, transitions.size());
+
+        assertEquals("timeout", transitions.get(0).getFromState());
+        assertEquals("last", transitions.get(0).getToState());
+        assertEquals(TransitionJournal.REASON_TIMEOUT, transitions.get(0).getReason());
+
+        assertEquals("last", transitions.get(1).getFromState());
+        assertNull(transitions.get(1).getToState());
+        assertEquals(transitions.get(0).getLoopCount() + 1, transitions.get(1).getLoopCount());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(10),
+                transitions.get(1).getTimestampNanos() - transitions.get(0).getTimestampNanos());
+    }
+
+    public void testProfiling() {
+        CountdownState countdownState = new CountdownState("countdown", 5);
+        TestState after = new TestState("after", testTelemetry);
+        after.setNextState(after);
+        stateMachine.addSequential(countdownState);
+        stateMachine.addSequential(after);
+        stateMachine.enableProfiling();
+        stateMachine.compile();
+
+        for (int i = 0; i < 7; i++) {
+            stateMachine.doOneStateLoop();
         }
 
-        @Override
-        public boolean isAutoClear() {
-            return false;
+        assertEquals(5, stateMachine.getLoopCount(countdownState));
+        assertEquals(2, stateMachine.getLoopCount(after));
+
+        long p50 = stateMachine.getPercentileLoopNanos(countdownState, 50);
+        long p99 = stateMachine.getPercentileLoopNanos(countdownState, 99);
+        long max = stateMachine.getMaxLoopNanos(countdownState);
+        assertTrue(p50 <= p99);
+        assertTrue(p99 <= max);
+        assertTrue(max > 0);
+
+        StateProfiler profiler = new StateProfiler();
+        profiler.record(0, 100000); // 0.1 ms
+        profiler.record(0, 100000);
+        profiler.record(0, 1200000); // 1.2 ms
+        profiler.record(0, 60000000); // 60 ms, past the last bucket
+        assertEquals(4, profiler.getLoopCount(0));
+        assertEquals(250000, profiler.getPercentileNanos(0, 50));
+        assertEquals(1250000, profiler.getPercentileNanos(0, 75));
+        assertEquals(60000000, profiler.getPercentileNanos(0, 99));
+        assertEquals(60000000, profiler.getMaxNanos(0));
+        assertEquals(0, profiler.getLoopCount(1));
+    }
+
+    class CountdownState extends State {
+        private final int loopsUntilDone;
+
+        private int executionCount = 0;
+
+        CountdownState(String name, int loopsUntilDone) {
+            super(name, testTelemetry);
+            this.loopsUntilDone = loopsUntilDone;
         }
 
         @Override
-        public void setAutoClear(boolean autoClear) {
+        public State doStuffAndGetNextState() {
+            executionCount++;
 
+            return executionCount >= loopsUntilDone ? nextState : this;
         }
 
         @Override
-        public int getMsTransmissionInterval() {
-            return 0;
+        public void resetToStart() {
+            executionCount = 0;
         }
 
         @Override
-        public void setMsTransmissionInterval(int msTransmissionInterval) {
+        public void liveConfigure(DebouncedGamepadButtons buttons) {
 
         }
+    }
 
-        @Override
-        public String getItemSeparator() {
-            return null;
+    class RewindableTestState extends TestState implements Rewindable {
+        private int setting = 0;
+
+        public RewindableTestState(String name, Telemetry telemetry) {
+            super(name, telemetry);
         }
 
         @Override
-        public void setItemSeparator(String itemSeparator) {
-
+        public int getMementoSize() {
+            return 1;
         }
 
         @Override
-        public String getCaptionValueSeparator() {
-            return null;
+        public void saveMemento(long[] memento) {
+            memento[0] = setting;
         }
 
         @Override
-        public void setCaptionValueSeparator(String captionValueSeparator) {
-
+        public void restoreMemento(long[] memento) {
+            setting = (int) memento[0];
         }
+    }
+
+    class TestOnOffButton implements OnOffButton {
+        boolean pressed = false;
 
         @Override
-        public Log log() {
-            return null;
+        public boolean isPressed() {
+            return pressed;
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import org.firstinspires.ftc.robotcore.external.Func;
+import org.firstinspires.ftc.robotcore.external.Telemetry;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class TestTelemetry implements Telemetry {
+    Map<String, String> telemetryData = new HashMap<>();
+
+    @Override
+    public Item addData(String caption, String format, Object... args) {
+        telemetryData.put(caption, String.format(format, args));
+
+        return null;
+    }
+
+    @Override
+    public Item addData(String caption, Object value) {
+        telemetryData.put(caption, value.toString());
+
+        return null;
+    }
+
+    @Override
+    public <T> Item addData(String caption, Func<T> valueProducer) {
+        return null;
+    }
+
+    @Override
+    public <T> Item addData(String caption, String format, Func<T> valueProducer) {
+        return null;
+    }
+
+    @Override
+    public boolean removeItem(Item item) {
+        return false;
+    }
+
+    @Override
+    public void clear() {
+
+    }
+
+    @Override
+    public void clearAll() {
+
+    }
+
+    @Override
+    public Object addAction(Runnable action) {
+        return null;
+    }
+
+    @Override
+    public boolean removeAction(Object token) {
+        return false;
+    }
+
+    @Override
+    public boolean update() {
+        return false;
+    }
+
+    @Override
+    public Line addLine() {
+        return null;
+    }
+
+    @Override
+    public Line addLine(String lineCaption) {
+        return null;
+    }
+
+    @Override
+    public boolean removeLine(Line line) {
+        return false;
+    }
+
+    @Override
+    public boolean isAutoClear() {
+        return false;
+    }
+
+    @Override
+    public void setAutoClear(boolean autoClear) {
+
+    }
+
+    @Override
+    public int getMsTransmissionInterval() {
+        return 0;
+    }
+
+    @Override
+    public void setMsTransmissionInterval(int msTransmissionInterval) {
+
+    }
+
+    @Override
+    public String getItemSeparator() {
+        return null;
+    }
+
+    @Override
+    public void setItemSeparator(String itemSeparator) {
+
+    }
+
+    @Override
+    public String getCaptionValueSeparator() {
+        return null;
+    }
+
+    @Override
+    public void setCaptionValueSeparator(String captionValueSeparator) {
+
+    }
+
+    @Override
+    public Log log() {
+        return null;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.corelib.state;
+
+import junit.framework.TestCase;
+
+import java.util.concurrent.TimeUnit;
+
+public class TimerWheelTest extends TestCase {
+    public void testTimerWheel() {
+        ManualClock clock = new ManualClock();
+        TimerWheel timerWheel = new TimerWheel(clock);
+
+        long shortTimer = timerWheel.schedule(150, TimeUnit.MILLISECONDS);
+        long longTimer = timerWheel.schedule(2, TimeUnit.SECONDS); // more than one turn of the wheel
+        long cancelledTimer = timerWheel.schedule(10, TimeUnit.MILLISECONDS);
+        timerWheel.cancel(cancelledTimer);
+        assertEquals(2, timerWheel.getActiveTimerCount());
+
+        clock.advance(149, TimeUnit.MILLISECONDS);
+        timerWheel.advance();
+        assertFalse(timerWheel.isExpired(shortTimer));
+
+        clock.advance(1, TimeUnit.MILLISECONDS);
+        timerWheel.advance();
+        assertTrue(timerWheel.isExpired(shortTimer));
+        assertFalse(timerWheel.isExpired(longTimer));
+
+        clock.advance(1, TimeUnit.SECONDS);
+        timerWheel.advance();
+        assertFalse(timerWheel.isExpired(longTimer));
+
+        clock.advance(5, TimeUnit.SECONDS);
+        timerWheel.advance();
+        assertTrue(timerWheel.isExpired(longTimer));
+
+        try {
+            timerWheel.isExpired(cancelledTimer);
+            fail("Expected IllegalArgumentException");
+        } catch (IllegalArgumentException expected) {
+            // expected
+        }
+    }
+}
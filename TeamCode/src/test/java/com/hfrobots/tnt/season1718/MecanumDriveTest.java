@@ -0,0 +1,54 @@
+/**
+ Copyright (c) 2017 HF Robotics (http://www.hfrobots.com)
+ Permission is hereby granted, free of charge, to any person obtaining a copy
+ of this software and associated documentation files (the "Software"), to deal
+ in the Software without restriction, including without limitation the rights
+ to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ copies of the Software, and to permit persons to whom the Software is
+ furnished to do so, subject to the following conditions:
+ The above copyright notice and this permission notice shall be included in all
+ copies or substantial portions of the Software.
+ THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ SOFTWARE.
+ **/
+
+package com.hfrobots.tnt.season1718;
+
+import junit.framework.TestCase;
+
+public class MecanumDriveTest extends TestCase {
+    public void testFieldCentricAtPlusMinus90Degrees() {
+        // robot turned 90 degrees counter-clockwise, so field-forward is to its right
+        MecanumDrive.WheelSpeeds speeds = MecanumDrive.cartesianWheelSpeeds(0, 1, 0, false,
+                MecanumDrive.fieldCentricGyroAngle(90, 0));
+        assertWheelSpeeds(speeds, 1, -1, -1, 1); // strafe right
+
+        // robot turned 90 degrees clockwise, so field-forward is to its left
+        speeds = MecanumDrive.cartesianWheelSpeeds(0, 1, 0, false,
+                MecanumDrive.fieldCentricGyroAngle(-90, 0));
+        assertWheelSpeeds(speeds, -1, 1, 1, -1); // strafe left
+
+        // pushing field-right while turned counter-clockwise drives the robot backwards
+        speeds = MecanumDrive.cartesianWheelSpeeds(1, 0, 0, false,
+                MecanumDrive.fieldCentricGyroAngle(90, 0));
+        assertWheelSpeeds(speeds, -1, -1, -1, -1);
+
+        // facing the direction set as field-forward drives as robot-centric
+        speeds = MecanumDrive.cartesianWheelSpeeds(0, 1, 0, false,
+                MecanumDrive.fieldCentricGyroAngle(90, 90));
+        assertWheelSpeeds(speeds, 1, 1, 1, 1);
+    }
+
+    private static void assertWheelSpeeds(MecanumDrive.WheelSpeeds speeds, double leftFront,
+                                          double rightFront, double leftRear, double rightRear) {
+        assertEquals(leftFront, speeds.leftFront, 0.0001);
+        assertEquals(rightFront, speeds.rightFront, 0.0001);
+        assertEquals(leftRear, speeds.leftRear, 0.0001);
+        assertEquals(rightRear, speeds.rightRear, 0.0001);
+    }
+}